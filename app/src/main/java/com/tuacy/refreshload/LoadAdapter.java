@@ -8,43 +8,28 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
-import com.tuacy.refreshloadlib.adapter.LoadRecyclerBaseAdapter;
+import com.tuacy.refreshloadlib.adapter.ItemStore;
+import com.tuacy.refreshloadlib.adapter.LoadRecyclerListAdapter;
+import com.tuacy.refreshloadlib.adapter.Utf8ArenaStore;
 import com.tuacy.refreshloadlib.view.DefaultTextLoadingView;
 import com.tuacy.refreshloadlib.view.LoadRecyclerView;
 import com.tuacy.refreshloadlib.view.loadingview.DefaultProgressLoadingView;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
-public class LoadAdapter extends LoadRecyclerBaseAdapter {
+public class LoadAdapter extends LoadRecyclerListAdapter<String> {
 
-	private Context      mContext;
-	private List<String> mData;
+	private Context mContext;
 
 	public LoadAdapter(Context context, List<String> data) {
-		super();
+		super(data);
 		mContext = context;
-		mData = data;
-	}
-
-	public void setData(List<String> data) {
-		mData = data;
-		notifyDataSetChanged();
-	}
-
-	public void loadModeData(List<String> load) {
-		if (mData == null) {
-			mData = new ArrayList<>();
-		}
-		for (String temp : load) {
-			mData.add(temp);
-		}
-		notifyDataSetChanged();
 	}
 
 	@Override
-	public int onItemCount() {
-		return mData == null ? 0 : mData.size();
+	protected ItemStore<String> onCreateItemStore(Collection<? extends String> data) {
+		return new Utf8ArenaStore(data);
 	}
 
 	@Override
@@ -55,7 +40,7 @@ public class LoadAdapter extends LoadRecyclerBaseAdapter {
 	@Override
 	public void onBindItemViewHolder(RecyclerView.ViewHolder holder, int position) {
 		ItemHolder itemHolder = (ItemHolder) holder;
-		itemHolder.mViewContent.setText(mData.get(position));
+		itemHolder.mViewContent.setText(getItem(position));
 	}
 
 	@Override
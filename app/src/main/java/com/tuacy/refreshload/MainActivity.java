@@ -1,38 +1,54 @@
 package com.tuacy.refreshload;
 
-import android.os.Handler;
-import android.os.Message;
 import android.support.v4.widget.SwipeRefreshLayout;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.support.v7.widget.LinearLayoutManager;
 
-import com.tuacy.refreshload.base.BaseWeakReferenceHandler;
+import com.tuacy.refreshloadlib.adapter.LoadRecyclerListAdapter;
+import com.tuacy.refreshloadlib.paging.DiskPageCache;
+import com.tuacy.refreshloadlib.paging.Page;
+import com.tuacy.refreshloadlib.paging.PagedDataSource;
+import com.tuacy.refreshloadlib.paging.PagedLoader;
+import com.tuacy.refreshloadlib.paging.StringPageCodec;
 import com.tuacy.refreshloadlib.view.LoadRecyclerView;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
-public class MainActivity extends AppCompatActivity implements SwipeRefreshLayout.OnRefreshListener, LoadRecyclerView.OnLoadMoreListener {
+public class MainActivity extends AppCompatActivity implements SwipeRefreshLayout.OnRefreshListener, PagedLoader.Callback {
 
-	private static final int MESSAGE_REFRESH = 0x101;
-	private static final int MESSAGE_LOAD    = 0x102;
+	private static final String PAGED_STATE_TAG        = "main_paged_state";
+	private static final long   PAGE_CACHE_SIZE        = 1024 * 1024;
+	private static final int    ITEM_WARM_UP_COUNT     = 12;
+	private static final long   INSERT_FRAME_BUDGET_MS = 8;
 
-	private LoadAdapter        mAdapter;
-	private SwipeRefreshLayout mSwipeRefresh;
-	private LoadRecyclerView   mLoadRecyclerView;
-	private Handler            mHandler;
-	private int                mLoadNumber;
+	private LoadAdapter                  mAdapter;
+	private SwipeRefreshLayout           mSwipeRefresh;
+	private LoadRecyclerView             mLoadRecyclerView;
+	private PagedLoader<Integer, String> mPagedLoader;
 
 
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
 		setContentView(R.layout.activity_main);
-		mHandler = new MainHandle(this);
 		initView();
 		initEvent();
-		initData();
+		initData(savedInstanceState);
+	}
+
+	@Override
+	protected void onSaveInstanceState(Bundle outState) {
+		super.onSaveInstanceState(outState);
+		mPagedLoader.saveState(outState);
+	}
+
+	@Override
+	protected void onDestroy() {
+		super.onDestroy();
+		mPagedLoader.release();
 	}
 
 	private void initView() {
@@ -43,76 +59,87 @@ public class MainActivity extends AppCompatActivity implements SwipeRefreshLayou
 		mLoadRecyclerView = (LoadRecyclerView) findViewById(R.id.recycler_view_record);
 		mLoadRecyclerView.setHasFixedSize(true);
 		mLoadRecyclerView.setLayoutManager(new LinearLayoutManager(this));
-		mLoadRecyclerView.setOnLoadMoreListener(this);
+		mLoadRecyclerView.setPrefetchEnabled(true);
+		mLoadRecyclerView.setItemPrefetchEnabled(true);
+		mLoadRecyclerView.setDeferDeliveryWhileFling(true);
+		mLoadRecyclerView.setExtentCacheEnabled(true);
 	}
 
 	private void initEvent() {
 
 	}
 
-	private void initData() {
+	private void initData(Bundle savedInstanceState) {
 		mAdapter = new LoadAdapter(this, null);
+		// 下拉刷新的时候只更新变化了的item
+		mAdapter.setItemCallback(new LoadRecyclerListAdapter.ItemCallback<String>() {
+			@Override
+			public boolean areItemsTheSame(String oldItem, String newItem) {
+				return oldItem.equals(newItem);
+			}
+
+			@Override
+			public boolean areContentsTheSame(String oldItem, String newItem) {
+				return oldItem.equals(newItem);
+			}
+		});
+		// 一页数据很多的时候分帧插入，每一帧最多用8ms
+		mAdapter.setInsertFrameBudget(INSERT_FRAME_BUDGET_MS);
 		mLoadRecyclerView.setAdapter(mAdapter);
-	}
-
-	private List<String> obtainTestList() {
-		List<String> data = new ArrayList<>();
-		data.add(" init 1");
-		data.add(" init 2");
-		data.add(" init 3");
-		data.add(" init 4");
-		data.add(" init 5");
-		data.add(" init 6");
-		return data;
-	}
-
-	private void dealWithMessage(Message msg) {
-		switch (msg.what) {
-			case MESSAGE_REFRESH:
-				List<String> refreshData = new ArrayList<>();
-				refreshData.add(" refresh 1");
-				refreshData.add(" refresh 2");
-				mAdapter.setData(refreshData);
-				mSwipeRefresh.setRefreshing(false);
-				mLoadRecyclerView.reset();
-				mLoadNumber = 0;
-				break;
-			case MESSAGE_LOAD:
-				List<String> loadData = new ArrayList<>();
-				loadData.add(" load 1");
-				loadData.add(" load 2");
-				mAdapter.loadModeData(loadData);
-				if (mLoadNumber == 3) {
-					mLoadRecyclerView.completeLoadAll();
-				} else {
-					mLoadRecyclerView.completeLoadSingle();
-				}
-				mLoadNumber++;
-				break;
+		// 第一页请求的时候在后台先把一屏的holder创建好
+		mLoadRecyclerView.warmUp(ITEM_WARM_UP_COUNT);
+		mPagedLoader = new PagedLoader<>(mLoadRecyclerView, mAdapter, new TestDataSource());
+		mPagedLoader.setCallback(this);
+		// 冷启动的时候先显示上次的第一页
+		mPagedLoader.setDiskCache(new DiskPageCache<>(new File(getCacheDir(), "pages"), PAGE_CACHE_SIZE, new StringPageCodec()),
+								  PAGED_STATE_TAG);
+		// 屏幕旋转或者进程被杀之后恢复已经加载的数据
+		if (!mPagedLoader.restoreState(this, PAGED_STATE_TAG, savedInstanceState)) {
+			// 先显示上次缓存的第一页，同时请求最新的
+			mPagedLoader.loadInitial();
 		}
 	}
 
 	@Override
 	public void onRefresh() {
 		// 下拉刷新走起
-		mHandler.sendEmptyMessageDelayed(MESSAGE_REFRESH, 3000);
+		mPagedLoader.refresh();
+	}
+
+	@Override
+	public void onRefreshComplete() {
+		mSwipeRefresh.setRefreshing(false);
 	}
 
 	@Override
-	public void onLoadMore() {
-		// 上拉加载更多
-		mHandler.sendEmptyMessageDelayed(MESSAGE_LOAD, 3000);
+	public void onLoadFailed(Exception e) {
+
 	}
 
-	private static class MainHandle extends BaseWeakReferenceHandler<MainActivity> {
+	/**
+	 * 模拟网络请求，key是页码
+	 */
+	private static class TestDataSource implements PagedDataSource<Integer, String> {
 
-		public MainHandle(MainActivity reference) {
-			super(reference);
+		private static final int LOAD_DELAY    = 3000;
+		private static final int LOAD_MAX_PAGE = 4;
+
+		@Override
+		public Page<Integer, String> loadInitial(int pageSize) throws Exception {
+			Thread.sleep(LOAD_DELAY);
+			List<String> refreshData = new ArrayList<>();
+			refreshData.add(" refresh 1");
+			refreshData.add(" refresh 2");
+			return new Page<>(refreshData, 1);
 		}
 
 		@Override
-		public void referenceHandleMessage(MainActivity reference, Message msg) {
-			reference.dealWithMessage(msg);
+		public Page<Integer, String> loadAfter(Integer key, int pageSize) throws Exception {
+			Thread.sleep(LOAD_DELAY);
+			List<String> loadData = new ArrayList<>();
+			loadData.add(" load 1");
+			loadData.add(" load 2");
+			return new Page<>(loadData, key + 1, key < LOAD_MAX_PAGE);
 		}
 	}
 }
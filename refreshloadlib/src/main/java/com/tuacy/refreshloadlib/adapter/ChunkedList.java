@@ -0,0 +1,367 @@
+package com.tuacy.refreshloadlib.adapter;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.RandomAccess;
+
+/**
+ * 分块保存的列表，一般一页数据是一块，适合一直往后加载的列表
+ * 往后加一页是均摊O(1)(只拷贝这一页)，按位置取是O(log 块数)，snapshot()是O(1)
+ * 快照和原来的列表共用块，快照不能修改，原来的列表修改的时候不会改到快照能看到的部分:
+ * 往最后加的时候只写最后一块后面空着的位置，其他的修改都是先拷贝再改
+ */
+public class ChunkedList<T> extends AbstractList<T> implements ItemStore<T>, RandomAccess {
+
+	private static final int MIN_CHUNK_CAPACITY = 16;
+	/**
+	 * 一块最多放多少项，单个add()的时候往最后一块里面填，满了之后新建一块
+	 */
+	private static final int MAX_CHUNK_SIZE     = 256;
+
+	private       Object[][] mChunks;
+	/**
+	 * 每一块最后一项的下一个位置，也就是这一块和之前所有块的项数之和，用来二分查找
+	 */
+	private       int[]      mEnds;
+	private       int        mChunkCount;
+	private       int        mSize;
+	/**
+	 * 有快照在用mChunks和mEnds，除了往最后加以外的修改都要先拷贝一份
+	 */
+	private       boolean    mShared;
+	private final boolean    mImmutable;
+
+	public ChunkedList() {
+		this(null);
+	}
+
+	public ChunkedList(Collection<? extends T> data) {
+		mChunks = new Object[8][];
+		mEnds = new int[8];
+		mImmutable = false;
+		if (data != null) {
+			addAll(data);
+		}
+	}
+
+	private ChunkedList(Object[][] chunks, int[] ends, int chunkCount, int size) {
+		mChunks = chunks;
+		mEnds = ends;
+		mChunkCount = chunkCount;
+		mSize = size;
+		mImmutable = true;
+	}
+
+	@Override
+	public ChunkedList<T> snapshot() {
+		if (mImmutable) {
+			return this;
+		}
+		mShared = true;
+		return new ChunkedList<>(mChunks, mEnds, mChunkCount, mSize);
+	}
+
+	@Override
+	public int size() {
+		return mSize;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T get(int index) {
+		checkIndex(index, mSize);
+		int chunk = chunkFor(index);
+		return (T) mChunks[chunk][index - chunkStart(chunk)];
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T set(int index, T element) {
+		checkMutable();
+		checkIndex(index, mSize);
+		ensureOwned();
+		int chunk = chunkFor(index);
+		int start = chunkStart(chunk);
+		// 块可能被快照共用，拷贝之后再改
+		Object[] copy = copyOf(mChunks[chunk], mEnds[chunk] - start, mEnds[chunk] - start);
+		T old = (T) copy[index - start];
+		copy[index - start] = element;
+		mChunks[chunk] = copy;
+		return old;
+	}
+
+	@Override
+	public boolean add(T element) {
+		checkMutable();
+		modCount++;
+		if (mChunkCount > 0) {
+			int last = mChunkCount - 1;
+			int length = mEnds[last] - chunkStart(last);
+			Object[] chunk = mChunks[last];
+			if (length < MAX_CHUNK_SIZE) {
+				// mEnds[last]要改，快照也在读它
+				ensureOwned();
+				if (length == chunk.length) {
+					chunk = copyOf(chunk, length, Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_CAPACITY, length * 2)));
+					mChunks[last] = chunk;
+				}
+				chunk[length] = element;
+				mEnds[last]++;
+				mSize++;
+				return true;
+			}
+		}
+		Object[] chunk = new Object[MIN_CHUNK_CAPACITY];
+		chunk[0] = element;
+		appendChunk(chunk, 1);
+		return true;
+	}
+
+	/**
+	 * 整个集合作为新的一块加到最后
+	 */
+	@Override
+	public boolean addAll(Collection<? extends T> collection) {
+		checkMutable();
+		Object[] chunk = collection.toArray();
+		if (chunk.length == 0) {
+			return false;
+		}
+		modCount++;
+		appendChunk(chunk, chunk.length);
+		return true;
+	}
+
+	@Override
+	public void add(int index, T element) {
+		addAll(index, Collections.singletonList(element));
+	}
+
+	/**
+	 * 插入到中间的时候把所在的块拆成两块
+	 */
+	@Override
+	public boolean addAll(int index, Collection<? extends T> collection) {
+		checkMutable();
+		checkIndex(index, mSize + 1);
+		if (index == mSize) {
+			return addAll(collection);
+		}
+		Object[] chunk = collection.toArray();
+		if (chunk.length == 0) {
+			return false;
+		}
+		modCount++;
+		ensureOwned();
+		int target = chunkFor(index);
+		int start = chunkStart(target);
+		if (index > start) {
+			splitChunk(target, index - start);
+			target++;
+		}
+		insertChunk(target, chunk, chunk.length);
+		return true;
+	}
+
+	@Override
+	public T remove(int index) {
+		T old = get(index);
+		removeRange(index, index + 1);
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		checkMutable();
+		modCount++;
+		if (mShared) {
+			mChunks = new Object[8][];
+			mEnds = new int[8];
+			mShared = false;
+		} else {
+			for (int chunk = 0; chunk < mChunkCount; chunk++) {
+				mChunks[chunk] = null;
+			}
+		}
+		mChunkCount = 0;
+		mSize = 0;
+	}
+
+	/**
+	 * subList().clear()会调用这里，整块删除的时候不拷贝数据，只有两头被切开的块才会拷贝
+	 */
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		checkMutable();
+		if (fromIndex < 0 || toIndex > mSize || fromIndex > toIndex) {
+			throw new IndexOutOfBoundsException("from " + fromIndex + " to " + toIndex + " size " + mSize);
+		}
+		if (fromIndex == toIndex) {
+			return;
+		}
+		modCount++;
+		ensureOwned();
+		int first = chunkFor(fromIndex);
+		int last = chunkFor(toIndex - 1);
+		int firstStart = chunkStart(first);
+		int lastStart = chunkStart(last);
+		// 第一块留下前面的部分，最后一块留下后面的部分
+		int headLength = fromIndex - firstStart;
+		int tailLength = mEnds[last] - toIndex;
+		Object[] head = headLength > 0 ? copyOf(mChunks[first], headLength, headLength) : null;
+		Object[] tail = null;
+		if (tailLength > 0) {
+			tail = new Object[tailLength];
+			System.arraycopy(mChunks[last], toIndex - lastStart, tail, 0, tailLength);
+		}
+		if (first == last && head != null && tail != null) {
+			// 在同一块的中间删除，剩下的两部分合成一块
+			Object[] merged = copyOf(head, headLength, headLength + tailLength);
+			System.arraycopy(tail, 0, merged, headLength, tailLength);
+			head = null;
+			tail = merged;
+		}
+		int removedChunks = last - first + 1;
+		int keep = (head != null ? 1 : 0) + (tail != null ? 1 : 0);
+		int shift = removedChunks - keep;
+		int removed = toIndex - fromIndex;
+		int lastEnd = mEnds[last];
+		int position = first;
+		if (head != null) {
+			mChunks[position] = head;
+			mEnds[position] = fromIndex;
+			position++;
+		}
+		if (tail != null) {
+			mChunks[position] = tail;
+			mEnds[position] = lastEnd - removed;
+		}
+		for (int chunk = last + 1; chunk < mChunkCount; chunk++) {
+			mChunks[chunk - shift] = mChunks[chunk];
+			mEnds[chunk - shift] = mEnds[chunk] - removed;
+		}
+		for (int chunk = mChunkCount - shift; chunk < mChunkCount; chunk++) {
+			mChunks[chunk] = null;
+		}
+		mChunkCount -= shift;
+		mSize -= removed;
+	}
+
+	private void appendChunk(Object[] chunk, int length) {
+		if (!mShared || mChunkCount == mChunks.length) {
+			// 有快照的时候只要还有空位就不用拷贝，快照只读前mChunkCount块，往后面写不会影响它
+			ensureCapacity(mChunkCount + 1);
+		}
+		mChunks[mChunkCount] = chunk;
+		mEnds[mChunkCount] = mSize + length;
+		mChunkCount++;
+		mSize += length;
+	}
+
+	private void insertChunk(int index, Object[] chunk, int length) {
+		ensureCapacity(mChunkCount + 1);
+		System.arraycopy(mChunks, index, mChunks, index + 1, mChunkCount - index);
+		System.arraycopy(mEnds, index, mEnds, index + 1, mChunkCount - index);
+		mChunks[index] = chunk;
+		mEnds[index] = chunkStart(index) + length;
+		for (int position = index + 1; position <= mChunkCount; position++) {
+			mEnds[position] += length;
+		}
+		mChunkCount++;
+		mSize += length;
+	}
+
+	/**
+	 * 把一块从offset的位置拆成两块
+	 */
+	private void splitChunk(int index, int offset) {
+		Object[] chunk = mChunks[index];
+		int start = chunkStart(index);
+		int length = mEnds[index] - start;
+		Object[] head = copyOf(chunk, offset, offset);
+		Object[] tail = new Object[length - offset];
+		System.arraycopy(chunk, offset, tail, 0, length - offset);
+		ensureCapacity(mChunkCount + 1);
+		System.arraycopy(mChunks, index + 1, mChunks, index + 2, mChunkCount - index - 1);
+		System.arraycopy(mEnds, index + 1, mEnds, index + 2, mChunkCount - index - 1);
+		mChunks[index] = head;
+		mEnds[index] = start + offset;
+		mChunks[index + 1] = tail;
+		mEnds[index + 1] = start + length;
+		mChunkCount++;
+	}
+
+	/**
+	 * 有快照的时候先拷贝一份块的索引，块里面的数据不拷贝
+	 */
+	private void ensureOwned() {
+		if (!mShared) {
+			return;
+		}
+		mChunks = copyOf(mChunks, mChunkCount, mChunks.length);
+		mEnds = copyOf(mEnds, mChunkCount, mEnds.length);
+		mShared = false;
+	}
+
+	private void ensureCapacity(int chunkCount) {
+		ensureOwned();
+		if (chunkCount <= mChunks.length) {
+			return;
+		}
+		int capacity = Math.max(chunkCount, mChunks.length * 2);
+		mChunks = copyOf(mChunks, mChunkCount, capacity);
+		mEnds = copyOf(mEnds, mChunkCount, capacity);
+	}
+
+	/**
+	 * @return index所在的块，第一个mEnds大于index的块
+	 */
+	private int chunkFor(int index) {
+		int low = 0;
+		int high = mChunkCount - 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (mEnds[middle] <= index) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private int chunkStart(int chunk) {
+		return chunk == 0 ? 0 : mEnds[chunk - 1];
+	}
+
+	private void checkMutable() {
+		if (mImmutable) {
+			throw new UnsupportedOperationException("snapshot is immutable");
+		}
+	}
+
+	private static void checkIndex(int index, int size) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + " size " + (size));
+		}
+	}
+
+	private static Object[] copyOf(Object[] source, int length, int capacity) {
+		Object[] copy = new Object[capacity];
+		System.arraycopy(source, 0, copy, 0, length);
+		return copy;
+	}
+
+	private static Object[][] copyOf(Object[][] source, int length, int capacity) {
+		Object[][] copy = new Object[capacity][];
+		System.arraycopy(source, 0, copy, 0, length);
+		return copy;
+	}
+
+	private static int[] copyOf(int[] source, int length, int capacity) {
+		int[] copy = new int[capacity];
+		System.arraycopy(source, 0, copy, 0, length);
+		return copy;
+	}
+}
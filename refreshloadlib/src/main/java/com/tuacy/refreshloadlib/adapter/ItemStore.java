@@ -0,0 +1,14 @@
+package com.tuacy.refreshloadlib.adapter;
+
+import java.util.List;
+
+/**
+ * LoadRecyclerListAdapter保存数据用的列表，通过onCreateItemStore()替换
+ */
+public interface ItemStore<T> extends List<T> {
+
+	/**
+	 * 不能修改的快照，之后对这个列表的修改不会影响它，可以交给后台线程读
+	 */
+	List<T> snapshot();
+}
@@ -0,0 +1,32 @@
+package com.tuacy.refreshloadlib.adapter;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import java.util.List;
+
+/**
+ * 一种内容区域的创建和绑定，通过LoadRecyclerBaseAdapter.registerDelegate()注册到对应的viewType
+ */
+public abstract class ItemViewDelegate {
+
+	public abstract RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent);
+
+	public abstract void onBindViewHolder(RecyclerView.ViewHolder holder, int position);
+
+	/**
+	 * 带payload的局部更新，默认完整的绑定
+	 */
+	public void onBindViewHolder(RecyclerView.ViewHolder holder, int position, List<Object> payloads) {
+		onBindViewHolder(holder, position);
+	}
+
+	/**
+	 * 快速滑动的时候的骨架绑定，停下来之后会再调用onBindViewHolder()
+	 *
+	 * @return 默认false，表示不支持骨架绑定
+	 */
+	public boolean onBindSkeleton(RecyclerView.ViewHolder holder, int position) {
+		return false;
+	}
+}
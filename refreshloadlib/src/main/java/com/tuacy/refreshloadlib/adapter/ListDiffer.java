@@ -0,0 +1,246 @@
+package com.tuacy.refreshloadlib.adapter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 计算两个列表之间的差异(Myers算法，线性空间的版本)，结果是可以直接按顺序通知给adapter的增删改
+ * 在后台线程调用
+ */
+final class ListDiffer {
+
+	static final int UPDATE_INSERT = 0;
+	static final int UPDATE_REMOVE = 1;
+	static final int UPDATE_CHANGE = 2;
+
+	private static ExecutorService sExecutor;
+
+	private ListDiffer() {
+	}
+
+	/**
+	 * 只有一个线程，后提交的diff一定在先提交的之后算完
+	 */
+	static synchronized Executor obtainExecutor() {
+		if (sExecutor == null) {
+			sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "ListDiffer");
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			});
+		}
+		return sExecutor;
+	}
+
+	/**
+	 * @return 每三个int是一次通知: 类型，adapter里面的位置，个数，按顺序通知就可以从oldList变成newList
+	 */
+	static <T> int[] calculate(List<T> oldList, List<T> newList, LoadRecyclerListAdapter.ItemCallback<T> callback) {
+		Updates updates = new Updates();
+		List<int[]> path = new Finder<>(oldList, newList, callback).findPath(0, 0, oldList.size(), newList.size());
+		if (path == null) {
+			return updates.toArray();
+		}
+		int x = 0;
+		int y = 0;
+		for (int index = 1; index < path.size(); index++) {
+			int[] point = path.get(index);
+			// 两个点之间最多只有一步不是对角线，对角线可能在它之前也可能在它之后
+			while (x < point[0] && y < point[1] && callback.areItemsTheSame(oldList.get(x), newList.get(y))) {
+				updates.match(!callback.areContentsTheSame(oldList.get(x), newList.get(y)));
+				x++;
+				y++;
+			}
+			if (point[0] - x < point[1] - y) {
+				updates.add(UPDATE_INSERT);
+				y++;
+			} else if (point[0] - x > point[1] - y) {
+				updates.add(UPDATE_REMOVE);
+				x++;
+			}
+			while (x < point[0] && y < point[1]) {
+				updates.match(!callback.areContentsTheSame(oldList.get(x), newList.get(y)));
+				x++;
+				y++;
+			}
+		}
+		return updates.toArray();
+	}
+
+	private static class Finder<T> {
+
+		private final List<T>                                 mOld;
+		private final List<T>                                 mNew;
+		private final LoadRecyclerListAdapter.ItemCallback<T> mCallback;
+
+		Finder(List<T> oldList, List<T> newList, LoadRecyclerListAdapter.ItemCallback<T> callback) {
+			mOld = oldList;
+			mNew = newList;
+			mCallback = callback;
+		}
+
+		/**
+		 * 找出(left, top)到(right, bottom)的最短路径上的关键点，相邻两个点之间是一步增删加上若干步对角线
+		 *
+		 * @return 起点和终点重合的时候返回null
+		 */
+		List<int[]> findPath(int left, int top, int right, int bottom) {
+			int[] snake = midpoint(left, top, right, bottom);
+			if (snake == null) {
+				return null;
+			}
+			List<int[]> head = findPath(left, top, snake[0], snake[1]);
+			List<int[]> tail = findPath(snake[2], snake[3], right, bottom);
+			List<int[]> path = head == null ? new ArrayList<int[]>() : head;
+			if (head == null) {
+				path.add(new int[]{snake[0], snake[1]});
+			}
+			if (tail == null) {
+				path.add(new int[]{snake[2], snake[3]});
+			} else {
+				path.addAll(tail);
+			}
+			return path;
+		}
+
+		/**
+		 * 同时从两头往中间找，返回在中间相遇的那一步的起点和终点{x1, y1, x2, y2}
+		 */
+		private int[] midpoint(int left, int top, int right, int bottom) {
+			int width = right - left;
+			int height = bottom - top;
+			int size = width + height;
+			if (size == 0) {
+				return null;
+			}
+			int delta = width - height;
+			int max = (size + 1) / 2;
+			int offset = max + 1;
+			int[] forward = new int[2 * max + 3];
+			int[] backward = new int[2 * max + 3];
+			forward[offset + 1] = left;
+			backward[offset + 1] = bottom;
+			for (int d = 0; d <= max; d++) {
+				int[] snake = forwards(left, top, right, bottom, delta, forward, backward, offset, d);
+				if (snake != null) {
+					return snake;
+				}
+				snake = backwards(left, top, right, bottom, delta, forward, backward, offset, d);
+				if (snake != null) {
+					return snake;
+				}
+			}
+			return null;
+		}
+
+		private int[] forwards(int left, int top, int right, int bottom, int delta, int[] forward, int[] backward,
+							   int offset, int d) {
+			for (int k = d; k >= -d; k -= 2) {
+				int c = k - delta;
+				int startX;
+				int x;
+				if (k == -d || (k != d && forward[offset + k - 1] < forward[offset + k + 1])) {
+					startX = x = forward[offset + k + 1];
+				} else {
+					startX = forward[offset + k - 1];
+					x = startX + 1;
+				}
+				int y = top + (x - left) - k;
+				int startY = (d == 0 || x != startX) ? y : y - 1;
+				while (x < right && y < bottom && mCallback.areItemsTheSame(mOld.get(x), mNew.get(y))) {
+					x++;
+					y++;
+				}
+				forward[offset + k] = x;
+				if ((delta & 1) != 0 && c >= -(d - 1) && c <= d - 1 && y >= backward[offset + c]) {
+					return new int[]{startX, startY, x, y};
+				}
+			}
+			return null;
+		}
+
+		private int[] backwards(int left, int top, int right, int bottom, int delta, int[] forward, int[] backward,
+								int offset, int d) {
+			for (int c = d; c >= -d; c -= 2) {
+				int k = c + delta;
+				int startY;
+				int y;
+				if (c == -d || (c != d && backward[offset + c - 1] > backward[offset + c + 1])) {
+					startY = y = backward[offset + c + 1];
+				} else {
+					startY = backward[offset + c - 1];
+					y = startY - 1;
+				}
+				int x = left + (y - top) + k;
+				int startX = (d == 0 || y != startY) ? x : x + 1;
+				while (x > left && y > top && mCallback.areItemsTheSame(mOld.get(x - 1), mNew.get(y - 1))) {
+					x--;
+					y--;
+				}
+				backward[offset + c] = y;
+				if ((delta & 1) == 0 && k >= -d && k <= d && x <= forward[offset + k]) {
+					return new int[]{x, y, startX, startY};
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * 把连续的同一种操作合并成一次通知
+	 */
+	private static class Updates {
+
+		private int[] mUpdates = new int[48];
+		private int   mSize;
+		private int   mPosition;
+
+		void match(boolean changed) {
+			if (changed) {
+				append(UPDATE_CHANGE);
+			}
+			mPosition++;
+		}
+
+		void add(int type) {
+			append(type);
+			if (type == UPDATE_INSERT) {
+				mPosition++;
+			}
+		}
+
+		private void append(int type) {
+			if (mSize > 0) {
+				int last = mSize - 3;
+				int lastType = mUpdates[last];
+				int lastEnd = mUpdates[last + 1] + (lastType == UPDATE_REMOVE ? 0 : mUpdates[last + 2]);
+				if (lastType == type && lastEnd == mPosition) {
+					mUpdates[last + 2]++;
+					return;
+				}
+			}
+			if (mSize + 3 > mUpdates.length) {
+				int[] updates = new int[mUpdates.length * 2];
+				System.arraycopy(mUpdates, 0, updates, 0, mSize);
+				mUpdates = updates;
+			}
+			mUpdates[mSize] = type;
+			mUpdates[mSize + 1] = mPosition;
+			mUpdates[mSize + 2] = 1;
+			mSize += 3;
+		}
+
+		int[] toArray() {
+			int[] updates = new int[mSize];
+			System.arraycopy(mUpdates, 0, updates, 0, mSize);
+			return updates;
+		}
+	}
+}
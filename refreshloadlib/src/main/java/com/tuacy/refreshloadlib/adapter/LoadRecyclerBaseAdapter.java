@@ -1,39 +1,407 @@
 package com.tuacy.refreshloadlib.adapter;
 
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 
+import com.tuacy.refreshloadlib.utils.DensityUtils;
 import com.tuacy.refreshloadlib.view.LoadRecyclerView;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
 /**
  * 用最后一个item来显示正在加载中
  */
 public abstract class LoadRecyclerBaseAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
-	private static final int TYPE_ITEM   = 0;
-	private static final int TYPE_FOOTER = 1;
-	private static final int TYPE_EMPTY  = 2;
+	/**
+	 * 内容区域默认的viewType，内部用的viewType都是负数，0和正数留给内容区域
+	 */
+	public static final int TYPE_ITEM   = 0;
+	/**
+	 * load区域的viewType，预先创建holder的时候用
+	 */
+	public static final int TYPE_FOOTER = -1;
+
+	private static final int TYPE_EMPTY       = -2;
+	private static final int TYPE_PLACEHOLDER = -3;
+
+	private static final int DEFAULT_PLACEHOLDER_HEIGHT_DP = 48;
+
+	/**
+	 * 分帧插入的时候第一块至少多少项，还没有测出每一项的耗时之前每一块的大小
+	 */
+	private static final int MIN_FIRST_CHUNK_SIZE = 16;
+	private static final int MAX_CHUNK_SIZE       = 512;
+
+	/**
+	 * 打开stable id的时候load区域和没有内容区域的id，不会和内容区域的id冲突
+	 */
+	private static final long FOOTER_ID = Long.MIN_VALUE;
+	private static final long EMPTY_ID  = Long.MIN_VALUE + 1;
+
+	private int                           mLoadState;
+	private OnLoadViewAttachListener      mAttachListener;
+	private OnPlaceholderBindListener     mPlaceholderListener;
+	private int                           mPlaceholderHeight;
+	private SparseArray<ItemViewDelegate> mDelegates;
+	/**
+	 * 每一种viewType在RecycledViewPool里面最多缓存几个
+	 */
+	private SparseIntArray                mMaxRecycledViews;
+	private RecyclerView                  mRecyclerView;
+	private boolean                       mFastScrolling;
+	/**
+	 * 快速滑动的时候只做了骨架绑定的holder，停下来之后再完整的绑定
+	 */
+	private Set<RecyclerView.ViewHolder>  mSkeletonHolders;
+	/**
+	 * 分帧插入：每一帧插入和布局最多用多长时间，0表示一次全部插入
+	 */
+	private long                          mInsertBudgetNs;
+	/**
+	 * 已经加到数据的最后但是还没有通知RecyclerView的项数，getItemCount()不包括这些项
+	 */
+	private int                           mPendingCount;
+	private int                           mPendingLoadState;
+	private int                           mChunkSize;
+	private int                           mLastChunkSize;
+	private long                          mChunkStartNs;
+	private boolean                       mChunkScheduled;
+	private boolean                       mSkipNextFrame;
+
+	/**
+	 * load区域和内容区域attach到window的回调，用来代替滑动过程中不停的去查找最后一个可见的item
+	 * 每个holder各回调一次，动画过程中可能有两个load区域的holder同时attach
+	 */
+	public interface OnLoadViewAttachListener {
+
+		void onLoadViewAttached();
+
+		void onLoadViewDetached();
+
+		void onItemViewAttached(int position);
+	}
 
-	private int mLoadState;
+	/**
+	 * 还没有加载的位置显示占位的时候回调，用来按需加载这个位置所在的页
+	 */
+	public interface OnPlaceholderBindListener {
+
+		void onPlaceholderBound(int position);
+	}
 
 	public LoadRecyclerBaseAdapter() {
 		mLoadState = LoadRecyclerView.LOAD_STATE_PREPARE;
+		mDelegates = new SparseArray<>();
+		mMaxRecycledViews = new SparseIntArray();
+		mSkeletonHolders = new HashSet<>();
+		mChunkSize = MIN_FIRST_CHUNK_SIZE;
+	}
+
+	/**
+	 * 注册一种内容区域，getItemType()返回viewType的位置交给delegate创建和绑定
+	 *
+	 * @param viewType 不能是负数
+	 */
+	public void registerDelegate(int viewType, ItemViewDelegate delegate) {
+		registerDelegate(viewType, delegate, 0);
+	}
+
+	/**
+	 * @param maxRecycledViews 这种viewType在RecycledViewPool里面最多缓存几个，0表示用RecyclerView默认的个数
+	 */
+	public void registerDelegate(int viewType, ItemViewDelegate delegate, int maxRecycledViews) {
+		if (viewType < 0) {
+			throw new IllegalArgumentException("view type must not be negative: " + viewType);
+		}
+		mDelegates.put(viewType, delegate);
+		if (maxRecycledViews > 0) {
+			mMaxRecycledViews.put(viewType, maxRecycledViews);
+			if (mRecyclerView != null) {
+				mRecyclerView.getRecycledViewPool().setMaxRecycledViews(viewType, maxRecycledViews);
+			}
+		}
+	}
+
+	public void setOnLoadViewAttachListener(OnLoadViewAttachListener listener) {
+		mAttachListener = listener;
+	}
+
+	public void setOnPlaceholderBindListener(OnPlaceholderBindListener listener) {
+		mPlaceholderListener = listener;
 	}
 
+	/**
+	 * 默认占位view的高度(px)
+	 */
+	public void setPlaceholderHeight(int height) {
+		mPlaceholderHeight = height;
+	}
+
+	/**
+	 * 状态没有变化的时候什么都不做，没有内容的时候最后一项是没有内容区域，也不需要刷新
+	 * 还有分帧插入没有完成的时候，等最后一块插入的时候再更新
+	 */
 	public void setLoadState(int state) {
+		if (mPendingCount > 0) {
+			mPendingLoadState = state;
+			return;
+		}
+		if (state == mLoadState) {
+			return;
+		}
+		int oldState = mLoadState;
 		mLoadState = state;
-		// 只刷新最后一项，即load的那一项
-		notifyItemChanged(getItemCount() - 1);
+		if (onItemCount() > 0) {
+			// 只刷新最后一项，即load的那一项，带上payload只做局部的更新
+			notifyItemChanged(getItemCount() - 1, new LoadStateChange(oldState, state));
+		}
+	}
+
+	public int getLoadState() {
+		return mPendingCount > 0 ? mPendingLoadState : mLoadState;
+	}
+
+	/**
+	 * 一次加到最后的数据很多的时候分成几块，每一帧插入一块，每一帧插入和布局的时间尽量不超过budgetMs
+	 * 第一块马上插入，至少能占满一屏，0表示一次全部插入
+	 */
+	public void setInsertFrameBudget(long budgetMs) {
+		mInsertBudgetNs = TimeUnit.MILLISECONDS.toNanos(Math.max(0, budgetMs));
+		if (mInsertBudgetNs == 0) {
+			flushPendingInserts();
+		}
+	}
+
+	/**
+	 * 子类把count条数据加到最后之后调用，只通知load区域前面新插入的这一段，load区域的状态一起更新
+	 * 已经显示的item不会重新绑定，load区域只有在状态变化的时候才会刷新
+	 * 设置了setInsertFrameBudget()的时候分帧插入，之前还没有插入完的部分也在前面排着
+	 */
+	public void notifyItemsAppended(int count, int loadState) {
+		if (count <= 0 && mPendingCount == 0) {
+			setLoadState(loadState);
+			return;
+		}
+		mPendingCount += Math.max(0, count);
+		mPendingLoadState = loadState;
+		if (mInsertBudgetNs == 0 || mRecyclerView == null || mPendingCount <= mChunkSize) {
+			flushPendingInserts();
+			return;
+		}
+		if (mChunkScheduled) {
+			return;
+		}
+		// 第一块是接下来要显示在屏幕上的，马上插入
+		insertChunk(Math.max(mChunkSize, estimateViewportCount()));
+		if (mPendingCount > 0) {
+			mSkipNextFrame = true;
+			scheduleChunk();
+		}
+	}
+
+	/**
+	 * 马上插入还没有插入的部分，子类在修改最后这部分数据或者要让RecyclerView看到所有数据之前调用
+	 */
+	public void flushPendingInserts() {
+		if (mPendingCount > 0) {
+			insertChunk(mPendingCount);
+		}
+		cancelChunk();
+	}
+
+	/**
+	 * 丢掉还没有插入的部分，子类整个替换数据之后调用，之后要notifyDataSetChanged()
+	 */
+	protected void cancelPendingInserts() {
+		if (mPendingCount > 0) {
+			mPendingCount = 0;
+			mLoadState = mPendingLoadState;
+		}
+		cancelChunk();
+	}
+
+	private void insertChunk(int count) {
+		count = Math.min(count, mPendingCount);
+		int start = onItemCount() - mPendingCount;
+		mPendingCount -= count;
+		int oldState = mLoadState;
+		if (mPendingCount == 0) {
+			mLoadState = mPendingLoadState;
+		}
+		notifyItemRangeInserted(start, count);
+		if (start == 0) {
+			// 原来的没有内容区域变成了load区域
+			notifyItemChanged(start + count);
+		} else if (oldState != mLoadState) {
+			notifyItemChanged(start + count, new LoadStateChange(oldState, mLoadState));
+		}
+	}
+
+	/**
+	 * 每一帧的动画阶段插入一块，布局完成之后在onPreDraw里面统计这一块花了多长时间，算出下一块插入多少项
+	 */
+	private final Runnable mChunkRunnable = new Runnable() {
+		@Override
+		public void run() {
+			if (!mChunkScheduled) {
+				return;
+			}
+			if (mSkipNextFrame) {
+				// 第一块在这一帧里面布局，下一块放到下一帧
+				mSkipNextFrame = false;
+				ViewCompat.postOnAnimation(mRecyclerView, this);
+				return;
+			}
+			mLastChunkSize = Math.min(mChunkSize, mPendingCount);
+			mChunkStartNs = System.nanoTime();
+			insertChunk(mLastChunkSize);
+			if (mPendingCount > 0) {
+				ViewCompat.postOnAnimation(mRecyclerView, this);
+			} else {
+				cancelChunk();
+			}
+		}
+	};
+
+	private final ViewTreeObserver.OnPreDrawListener mChunkMeasurer = new ViewTreeObserver.OnPreDrawListener() {
+		@Override
+		public boolean onPreDraw() {
+			if (mChunkStartNs != 0 && mLastChunkSize > 0) {
+				long itemNs = Math.max(1, (System.nanoTime() - mChunkStartNs) / mLastChunkSize);
+				mChunkSize = (int) Math.max(1, Math.min(MAX_CHUNK_SIZE, mInsertBudgetNs / itemNs));
+			}
+			mChunkStartNs = 0;
+			return true;
+		}
+	};
+
+	private void scheduleChunk() {
+		mChunkScheduled = true;
+		mRecyclerView.getViewTreeObserver().addOnPreDrawListener(mChunkMeasurer);
+		ViewCompat.postOnAnimation(mRecyclerView, mChunkRunnable);
+	}
+
+	private void cancelChunk() {
+		if (!mChunkScheduled) {
+			return;
+		}
+		mChunkScheduled = false;
+		mSkipNextFrame = false;
+		mChunkStartNs = 0;
+		if (mRecyclerView != null) {
+			mRecyclerView.removeCallbacks(mChunkRunnable);
+			ViewTreeObserver observer = mRecyclerView.getViewTreeObserver();
+			if (observer.isAlive()) {
+				observer.removeOnPreDrawListener(mChunkMeasurer);
+			}
+		}
+	}
+
+	/**
+	 * 在下一帧的动画阶段执行，还没有attach到RecyclerView的时候马上执行
+	 */
+	void postOnNextFrame(Runnable action) {
+		if (mRecyclerView == null) {
+			action.run();
+		} else {
+			ViewCompat.postOnAnimation(mRecyclerView, action);
+		}
+	}
+
+	/**
+	 * 不是由LoadRecyclerView发起的状态变化，要同时更新LoadRecyclerView，它根据自己的状态判断还能不能继续加载
+	 */
+	void dispatchLoadState(int state) {
+		if (mRecyclerView instanceof LoadRecyclerView) {
+			((LoadRecyclerView) mRecyclerView).setLoadState(state);
+		} else {
+			setLoadState(state);
+		}
+	}
+
+	/**
+	 * 按现在屏幕上item的平均高度估算一屏能放几个
+	 */
+	private int estimateViewportCount() {
+		int childCount = mRecyclerView.getChildCount();
+		if (childCount <= 1) {
+			return MIN_FIRST_CHUNK_SIZE;
+		}
+		View first = mRecyclerView.getChildAt(0);
+		View last = mRecyclerView.getChildAt(childCount - 1);
+		int extent = Math.max(1, (last.getBottom() - first.getTop()) / childCount);
+		return Math.max(MIN_FIRST_CHUNK_SIZE, mRecyclerView.getHeight() / extent + 1);
 	}
 
 	public abstract int onItemCount();
 
 	/**
-	 * 内容区域
+	 * 内容区域，没有用registerDelegate()注册的viewType走这里
+	 */
+	public RecyclerView.ViewHolder onCreateItemViewHolder(ViewGroup parent, int viewType) {
+		throw new IllegalStateException("no delegate registered for view type " + viewType);
+	}
+
+	public void onBindItemViewHolder(RecyclerView.ViewHolder holder, final int position) {
+		throw new IllegalStateException("no delegate registered for view type " + holder.getItemViewType());
+	}
+
+	/**
+	 * 快速滑动的时候代替onBindItemViewHolder()，只绑定很快就能完成的部分(文字、占位背景)，图片之类的留到停下来之后
+	 *
+	 * @return 默认false，表示不支持骨架绑定，直接完整的绑定
+	 */
+	protected boolean onBindItemSkeleton(RecyclerView.ViewHolder holder, int position) {
+		return false;
+	}
+
+	/**
+	 * LoadRecyclerView根据滑动速度设置，超过设置的速度之后内容区域先做骨架绑定
+	 */
+	public void setFastScrolling(boolean fastScrolling) {
+		mFastScrolling = fastScrolling;
+	}
+
+	public boolean isFastScrolling() {
+		return mFastScrolling;
+	}
+
+	/**
+	 * 完整的绑定快速滑动的时候只做了骨架绑定的item，LoadRecyclerView在停止滑动的时候调用
+	 * 已经回收了的holder不会在这里面，位置已经失效的holder之后RecyclerView会重新绑定
 	 */
-	public abstract RecyclerView.ViewHolder onCreateItemViewHolder(ViewGroup parent, int viewType);
+	public void bindDeferredItems() {
+		if (mSkeletonHolders.isEmpty()) {
+			return;
+		}
+		List<RecyclerView.ViewHolder> holders = new ArrayList<>(mSkeletonHolders);
+		mSkeletonHolders.clear();
+		for (RecyclerView.ViewHolder holder : holders) {
+			int position = holder.getAdapterPosition();
+			if (position != RecyclerView.NO_POSITION && holder.getItemViewType() == getItemViewType(position)) {
+				bindItem(holder, position, holder.getItemViewType());
+			}
+		}
+	}
 
-	public abstract void onBindItemViewHolder(RecyclerView.ViewHolder holder, final int position);
+	/**
+	 * 内容区域这个位置的viewType，有多种内容区域的时候重写，返回registerDelegate()注册过的viewType
+	 */
+	protected int getItemType(int position) {
+		return TYPE_ITEM;
+	}
 
 	/**
 	 * 加载的时候显示的load区域
@@ -42,6 +410,13 @@ public abstract class LoadRecyclerBaseAdapter extends RecyclerView.Adapter<Recyc
 
 	public abstract void onBindLoadViewHolder(RecyclerView.ViewHolder holder, final int position, int loadState);
 
+	/**
+	 * load区域的状态变化了，holder还是原来的那个，只需要更新状态，默认直接调用onBindLoadViewHolder()
+	 */
+	protected void onUpdateLoadViewHolder(RecyclerView.ViewHolder holder, final int position, int oldState, int newState) {
+		onBindLoadViewHolder(holder, position, newState);
+	}
+
 	/**
 	 * 没有内容
 	 */
@@ -49,34 +424,221 @@ public abstract class LoadRecyclerBaseAdapter extends RecyclerView.Adapter<Recyc
 
 	public abstract void onBindEmptyViewHolder(RecyclerView.ViewHolder holder, final int position);
 
+	/**
+	 * 分组列表用，position所在的组，没有分组或者不是内容区域的时候返回-1
+	 */
+	public int getSectionForPosition(int position) {
+		return -1;
+	}
+
+	/**
+	 * position是不是一组的第一项，StickyHeaderDecoration会在它上面留出组头的位置
+	 */
+	public boolean isSectionStart(int position) {
+		return false;
+	}
+
+	/**
+	 * 组头，StickyHeaderDecoration用，创建出来的view会被缓存起来，不会每次绘制的时候都重新创建
+	 */
+	public View onCreateSectionHeader(ViewGroup parent) {
+		return null;
+	}
+
+	public void onBindSectionHeader(View header, int section) {
+
+	}
+
+	/**
+	 * 调用了setHasStableIds(true)的时候内容区域每一项的id
+	 */
+	protected long getItemStableId(int position) {
+		return RecyclerView.NO_ID;
+	}
+
+	/**
+	 * 这个位置的数据是不是还没有加载，没有加载的显示占位
+	 */
+	protected boolean isPlaceholder(int position) {
+		return false;
+	}
+
+	/**
+	 * 占位区域，默认是一个空的固定高度的view
+	 */
+	protected RecyclerView.ViewHolder onCreatePlaceholderViewHolder(ViewGroup parent, int viewType) {
+		View view = new View(parent.getContext());
+		int height = mPlaceholderHeight > 0 ? mPlaceholderHeight : DensityUtils.dp2px(parent.getContext(),
+																					   DEFAULT_PLACEHOLDER_HEIGHT_DP);
+		view.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, height));
+		return new PlaceholderHolder(view);
+	}
+
+	protected void onBindPlaceholderViewHolder(RecyclerView.ViewHolder holder, final int position) {
+
+	}
+
 	@Override
 	public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
 		switch (viewType) {
-			case TYPE_ITEM:
-				return onCreateItemViewHolder(parent, viewType);
 			case TYPE_FOOTER:
 				return onCreateLoadViewHolder(parent, viewType, mLoadState);
 			case TYPE_EMPTY:
 				return onCreateEmptyViewHolder(parent, viewType);
+			case TYPE_PLACEHOLDER:
+				return onCreatePlaceholderViewHolder(parent, viewType);
 		}
-		return null;
+		ItemViewDelegate delegate = mDelegates.get(viewType);
+		return delegate != null ? delegate.onCreateViewHolder(parent) : onCreateItemViewHolder(parent, viewType);
 	}
 
 	@Override
 	public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
-		switch (getItemViewType(position)) {
-			case TYPE_ITEM:
-				onBindItemViewHolder(holder, position);
-				break;
+		int viewType = getItemViewType(position);
+		switch (viewType) {
 			case TYPE_FOOTER:
 				onBindLoadViewHolder(holder, position, mLoadState);
 				break;
 			case TYPE_EMPTY:
 				onBindEmptyViewHolder(holder, position);
 				break;
+			case TYPE_PLACEHOLDER:
+				onBindPlaceholderViewHolder(holder, position);
+				if (mPlaceholderListener != null) {
+					mPlaceholderListener.onPlaceholderBound(position);
+				}
+				break;
+			default:
+				bindItem(holder, position, viewType);
+				break;
+		}
+	}
+
+	private void bindItem(RecyclerView.ViewHolder holder, int position, int viewType) {
+		ItemViewDelegate delegate = mDelegates.get(viewType);
+		if (mFastScrolling) {
+			boolean skeleton = delegate != null ? delegate.onBindSkeleton(holder, position) :
+							   onBindItemSkeleton(holder, position);
+			if (skeleton) {
+				mSkeletonHolders.add(holder);
+				return;
+			}
+		}
+		mSkeletonHolders.remove(holder);
+		if (delegate != null) {
+			delegate.onBindViewHolder(holder, position);
+		} else {
+			onBindItemViewHolder(holder, position);
 		}
 	}
 
+	@Override
+	public void onBindViewHolder(RecyclerView.ViewHolder holder, int position, List<Object> payloads) {
+		int viewType = getItemViewType(position);
+		// 只做了骨架绑定的holder没有可以局部更新的内容
+		if (viewType >= 0 && !payloads.isEmpty() && mDelegates.get(viewType) != null &&
+			!mSkeletonHolders.contains(holder)) {
+			mDelegates.get(viewType).onBindViewHolder(holder, position, payloads);
+			return;
+		}
+		if (payloads.isEmpty() || viewType != TYPE_FOOTER) {
+			onBindViewHolder(holder, position);
+			return;
+		}
+		// 合并多次状态变化，从第一次变化之前的状态到最后一次变化之后的状态
+		int oldState = -1;
+		int newState = -1;
+		for (Object payload : payloads) {
+			if (!(payload instanceof LoadStateChange)) {
+				onBindViewHolder(holder, position);
+				return;
+			}
+			LoadStateChange change = (LoadStateChange) payload;
+			if (oldState == -1) {
+				oldState = change.mOldState;
+			}
+			newState = change.mNewState;
+		}
+		onUpdateLoadViewHolder(holder, position, oldState, newState);
+	}
+
+	/**
+	 * ItemAnimator用来判断状态变化的时候能不能直接用原来的holder
+	 */
+	public static boolean isLoadViewHolder(RecyclerView.ViewHolder holder) {
+		return holder.getItemViewType() == TYPE_FOOTER;
+	}
+
+	@Override
+	public void onViewRecycled(RecyclerView.ViewHolder holder) {
+		super.onViewRecycled(holder);
+		mSkeletonHolders.remove(holder);
+	}
+
+	@Override
+	public void onViewAttachedToWindow(RecyclerView.ViewHolder holder) {
+		super.onViewAttachedToWindow(holder);
+		int viewType = holder.getItemViewType();
+		if (viewType == TYPE_FOOTER || viewType == TYPE_EMPTY) {
+			// StaggeredGridLayoutManager的时候load区域和没有内容区域占满一行
+			ViewGroup.LayoutParams layoutParams = holder.itemView.getLayoutParams();
+			if (layoutParams instanceof StaggeredGridLayoutManager.LayoutParams) {
+				((StaggeredGridLayoutManager.LayoutParams) layoutParams).setFullSpan(true);
+			}
+		}
+		if (mAttachListener == null) {
+			return;
+		}
+		if (viewType == TYPE_FOOTER) {
+			mAttachListener.onLoadViewAttached();
+		} else if (viewType != TYPE_EMPTY) {
+			mAttachListener.onItemViewAttached(holder.getLayoutPosition());
+		}
+	}
+
+	@Override
+	public void onViewDetachedFromWindow(RecyclerView.ViewHolder holder) {
+		super.onViewDetachedFromWindow(holder);
+		if (mAttachListener != null && holder.getItemViewType() == TYPE_FOOTER) {
+			mAttachListener.onLoadViewDetached();
+		}
+	}
+
+	@Override
+	public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+		super.onAttachedToRecyclerView(recyclerView);
+		mRecyclerView = recyclerView;
+		setupFullSpan(recyclerView.getLayoutManager());
+		RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+		for (int index = 0; index < mMaxRecycledViews.size(); index++) {
+			pool.setMaxRecycledViews(mMaxRecycledViews.keyAt(index), mMaxRecycledViews.valueAt(index));
+		}
+	}
+
+	@Override
+	public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+		super.onDetachedFromRecyclerView(recyclerView);
+		if (mRecyclerView == recyclerView) {
+			flushPendingInserts();
+			mRecyclerView = null;
+		}
+	}
+
+	/**
+	 * GridLayoutManager的时候load区域和没有内容区域占满一行
+	 */
+	public void setupFullSpan(RecyclerView.LayoutManager layoutManager) {
+		if (!(layoutManager instanceof GridLayoutManager)) {
+			return;
+		}
+		final GridLayoutManager gridLayoutManager = (GridLayoutManager) layoutManager;
+		final GridLayoutManager.SpanSizeLookup lookup = gridLayoutManager.getSpanSizeLookup();
+		if (lookup instanceof FullSpanSizeLookup) {
+			return;
+		}
+		gridLayoutManager.setSpanSizeLookup(new FullSpanSizeLookup(gridLayoutManager, lookup));
+	}
+
 	@Override
 	public int getItemViewType(int position) {
 		if (getItemCount() == 1 && position == 0) {
@@ -87,17 +649,78 @@ public abstract class LoadRecyclerBaseAdapter extends RecyclerView.Adapter<Recyc
 			// 最后一个用来显示加载中
 			return TYPE_FOOTER;
 		} else {
-			return TYPE_ITEM;
+			return isPlaceholder(position) ? TYPE_PLACEHOLDER : getItemType(position);
+		}
+	}
+
+	@Override
+	public long getItemId(int position) {
+		switch (getItemViewType(position)) {
+			case TYPE_FOOTER:
+				return FOOTER_ID;
+			case TYPE_EMPTY:
+				return EMPTY_ID;
+			default:
+				return getItemStableId(position);
 		}
 	}
 
 	/**
 	 * 最后一个用来显示加载中
 	 *
-	 * @return onItemCount() + 1
+	 * @return onItemCount() + 1，分帧插入还没有插入的部分不算
 	 */
 	@Override
 	public int getItemCount() {
-		return onItemCount() + 1;
+		return onItemCount() - mPendingCount + 1;
+	}
+
+	private class FullSpanSizeLookup extends GridLayoutManager.SpanSizeLookup {
+
+		private final GridLayoutManager                mLayoutManager;
+		private final GridLayoutManager.SpanSizeLookup mLookup;
+
+		FullSpanSizeLookup(GridLayoutManager layoutManager, GridLayoutManager.SpanSizeLookup lookup) {
+			mLayoutManager = layoutManager;
+			mLookup = lookup;
+		}
+
+		@Override
+		public int getSpanSize(int position) {
+			int viewType = getItemViewType(position);
+			if (viewType == TYPE_FOOTER || viewType == TYPE_EMPTY) {
+				return mLayoutManager.getSpanCount();
+			}
+			return mLookup == null ? 1 : mLookup.getSpanSize(position);
+		}
+	}
+
+	/**
+	 * load区域状态变化的时候通知的payload
+	 */
+	public static final class LoadStateChange {
+
+		final int mOldState;
+		final int mNewState;
+
+		LoadStateChange(int oldState, int newState) {
+			mOldState = oldState;
+			mNewState = newState;
+		}
+
+		public int getOldState() {
+			return mOldState;
+		}
+
+		public int getNewState() {
+			return mNewState;
+		}
+	}
+
+	private static class PlaceholderHolder extends RecyclerView.ViewHolder {
+
+		PlaceholderHolder(View itemView) {
+			super(itemView);
+		}
 	}
 }
@@ -0,0 +1,709 @@
+package com.tuacy.refreshloadlib.adapter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.widget.RecyclerView;
+
+import com.tuacy.refreshloadlib.utils.LongIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 自己持有数据的adapter，PagedLoader加载的数据直接交给它
+ */
+public abstract class LoadRecyclerListAdapter<T> extends LoadRecyclerBaseAdapter {
+
+	private final Handler               mMainHandler;
+	private       List<T>               mData;
+	private       ItemCallback<T>       mItemCallback;
+	/**
+	 * 每次submitList()或者直接修改数据的时候加一，用来判断diff的结果是不是已经过时了
+	 */
+	private       int                   mSubmitGeneration;
+	/**
+	 * 每次submitList()、setData()、setPlaceholderData()整个替换数据的时候加一，被后面的替换覆盖了的diff结果直接丢弃
+	 */
+	private       int                   mReplaceGeneration;
+	/**
+	 * submitList()正在后台diff，这个时候提交的事务要等新的数据交给adapter之后再执行
+	 */
+	private       boolean               mDiffInFlight;
+	private       ItemIdProvider<T>     mIdProvider;
+	/**
+	 * id到序号，序号减去mFirstSequence就是位置，往前插入的时候只需要改mFirstSequence，已有的项不用动
+	 */
+	private       LongIntHashMap        mIdIndex;
+	private       int                   mFirstSequence;
+	private       boolean               mIndexDirty;
+	private       SectionKeyProvider<T> mSectionProvider;
+	private       SectionIndex          mSectionIndex;
+	/**
+	 * 每一组的key，和mSectionIndex里面的组一一对应
+	 */
+	private       List<Object>          mSectionKeys;
+	private       boolean               mSectionDirty;
+	/**
+	 * 任意线程提交的事务，主线程每一帧统一执行一次
+	 */
+	private final ConcurrentLinkedQueue<Transaction<T>> mTransactions;
+	private final AtomicBoolean                         mDrainScheduled;
+
+	/**
+	 * submitList()的时候用来判断新旧两个列表里面的数据是不是同一项、内容有没有变化，在后台线程调用
+	 */
+	public interface ItemCallback<T> {
+
+		boolean areItemsTheSame(T oldItem, T newItem);
+
+		boolean areContentsTheSame(T oldItem, T newItem);
+	}
+
+	/**
+	 * 每一项的唯一id，设置之后打开stable id，往前往后加载的时候已经有了的项会被去掉
+	 */
+	public interface ItemIdProvider<T> {
+
+		long getItemId(T item);
+	}
+
+	/**
+	 * 分组列表里面每一项所在组的key，相邻的key相同(equals)的项在同一组
+	 */
+	public interface SectionKeyProvider<T> {
+
+		Object getSectionKey(T item);
+	}
+
+	public LoadRecyclerListAdapter() {
+		this(null);
+	}
+
+	public LoadRecyclerListAdapter(List<T> data) {
+		super();
+		mMainHandler = new Handler(Looper.getMainLooper());
+		mTransactions = new ConcurrentLinkedQueue<>();
+		mDrainScheduled = new AtomicBoolean();
+		mData = onCreateItemStore(data);
+	}
+
+	/**
+	 * 创建保存数据的列表，默认是ChunkedList，数据量很大的时候可以换成更紧凑的实现，比如String用Utf8ArenaStore
+	 * 在构造函数里面也会调用，不要用到子类的成员变量
+	 */
+	protected ItemStore<T> onCreateItemStore(Collection<? extends T> data) {
+		return new ChunkedList<>(data);
+	}
+
+	public void setItemCallback(ItemCallback<T> itemCallback) {
+		mItemCallback = itemCallback;
+	}
+
+	/**
+	 * 要在setAdapter()和创建StickyHeaderDecoration之前调用，RecyclerView不允许在注册了observer之后再修改hasStableIds
+	 * 只有appendData()和prependData()会按id去重，setData()、setPlaceholderData()、submitList()(包括PagedLoader的第一页)
+	 * 是整个替换，调用者要保证里面的id不重复，重复的时候getPositionForId()只能找到其中一个
+	 */
+	public void setItemIdProvider(ItemIdProvider<T> idProvider) {
+		mIdProvider = idProvider;
+		mIdIndex = idProvider == null ? null : new LongIntHashMap(mData.size());
+		mIndexDirty = true;
+		setHasStableIds(idProvider != null);
+	}
+
+	/**
+	 * 设置之后按key分组，配合StickyHeaderDecoration显示组头
+	 * 往后加载的时候只计算新加的部分，新的一页第一项的key和最后一组相同的时候接在最后一组后面
+	 */
+	public void setSectionKeyProvider(SectionKeyProvider<T> sectionProvider) {
+		mSectionProvider = sectionProvider;
+		mSectionIndex = sectionProvider == null ? null : new SectionIndex();
+		mSectionKeys = sectionProvider == null ? null : new ArrayList<>();
+		mSectionDirty = true;
+	}
+
+	public Object getSectionKey(int section) {
+		ensureSections();
+		return mSectionKeys.get(section);
+	}
+
+	@Override
+	public int getSectionForPosition(int position) {
+		if (mSectionProvider == null || position < 0 || position >= mData.size()) {
+			return -1;
+		}
+		ensureSections();
+		return mSectionIndex.getSectionForPosition(position);
+	}
+
+	@Override
+	public boolean isSectionStart(int position) {
+		if (mSectionProvider == null || position < 0 || position >= mData.size()) {
+			return false;
+		}
+		ensureSections();
+		return mSectionIndex.isSectionStart(position);
+	}
+
+	/**
+	 * O(1)的通过id找位置
+	 *
+	 * @return 没有的时候返回RecyclerView.NO_POSITION
+	 */
+	public int getPositionForId(long id) {
+		if (mIdProvider == null) {
+			return RecyclerView.NO_POSITION;
+		}
+		ensureIndex();
+		int sequence = mIdIndex.get(id, Integer.MIN_VALUE);
+		return sequence == Integer.MIN_VALUE ? RecyclerView.NO_POSITION : sequence - mFirstSequence;
+	}
+
+	/**
+	 * 整个替换数据，不会按id去重
+	 */
+	public void setData(List<T> data) {
+		mSubmitGeneration++;
+		mReplaceGeneration++;
+		finishDiff();
+		cancelPendingInserts();
+		mData = onCreateItemStore(data);
+		invalidateIndexes();
+		notifyDataSetChanged();
+	}
+
+	/**
+	 * 总数已知的时候用，data里面没有加载的位置为null，显示占位
+	 * data不会被拷贝，之后由调用者在主线程里面修改，修改之后调用notifyPlaceholdersLoaded()
+	 */
+	public void setPlaceholderData(List<T> data) {
+		mSubmitGeneration++;
+		mReplaceGeneration++;
+		finishDiff();
+		cancelPendingInserts();
+		mData = data;
+		invalidateIndexes();
+		notifyDataSetChanged();
+	}
+
+	/**
+	 * 在后台线程计算新旧数据的差异，然后在主线程只通知变化的部分，这样刷新的时候有动画，也不会重新绑定所有的item
+	 * 没有设置ItemCallback的时候和setData()一样
+	 * 结果回来之前又调用了submitList()、setData()或者setPlaceholderData()，这次的结果会被丢弃，commitCallback也不会被调用
+	 * 结果回来之前直接修改了数据(appendData()、removeRange()等)，diff已经对不上了，直接整个替换成data，commitCallback照样调用
+	 *
+	 * @param commitCallback 新的数据交给adapter之后在主线程回调，可以为null
+	 */
+	public void submitList(List<T> data, final Runnable commitCallback) {
+		final List<T> newData = onCreateItemStore(data);
+		final ItemCallback<T> itemCallback = mItemCallback;
+		if (itemCallback == null || mData.isEmpty() || newData.isEmpty()) {
+			// 有一边是空的时候没有内容区域和load区域要互相转换，直接全部刷新
+			setData(newData);
+			if (commitCallback != null) {
+				commitCallback.run();
+			}
+			return;
+		}
+		final int generation = ++mSubmitGeneration;
+		final int replaceGeneration = ++mReplaceGeneration;
+		final List<T> oldData = snapshot();
+		mDiffInFlight = true;
+		ListDiffer.obtainExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				final int[] updates = ListDiffer.calculate(oldData, newData, itemCallback);
+				mMainHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						if (replaceGeneration != mReplaceGeneration) {
+							return;
+						}
+						if (generation != mSubmitGeneration) {
+							// 中间直接修改过数据，差异已经对不上了，不能丢掉，否则等着commitCallback的调用者会一直等下去
+							setData(newData);
+						} else {
+							// 差异是按所有的旧数据算的，RecyclerView要先看到所有的旧数据
+							flushPendingInserts();
+							mData = newData;
+							invalidateIndexes();
+							dispatchUpdates(updates);
+						}
+						finishDiff();
+						if (commitCallback != null) {
+							commitCallback.run();
+						}
+					}
+				});
+			}
+		});
+	}
+
+	private void dispatchUpdates(int[] updates) {
+		for (int index = 0; index < updates.length; index += 3) {
+			switch (updates[index]) {
+				case ListDiffer.UPDATE_INSERT:
+					notifyItemRangeInserted(updates[index + 1], updates[index + 2]);
+					break;
+				case ListDiffer.UPDATE_REMOVE:
+					notifyItemRangeRemoved(updates[index + 1], updates[index + 2]);
+					break;
+				case ListDiffer.UPDATE_CHANGE:
+					notifyItemRangeChanged(updates[index + 1], updates[index + 2]);
+					break;
+			}
+		}
+	}
+
+	/**
+	 * 占位的数据加载回来了，start开始的count项原来都是占位(null)
+	 * 占位没有进id的索引，只需要把加载回来的这一段加进去，不用每一页都重新建整个索引
+	 */
+	public void notifyPlaceholdersLoaded(int start, int count) {
+		flushPendingInserts();
+		if (mIdProvider != null && !mIndexDirty) {
+			int end = Math.min(mData.size(), start + count);
+			for (int index = Math.max(0, start); index < end; index++) {
+				indexItem(mData.get(index), mFirstSequence + index);
+			}
+		}
+		// 加载回来的项可能把原来算在前一组里面的占位分成新的一组，分组要重新算
+		mSectionDirty = true;
+		notifyItemRangeChanged(start, count);
+	}
+
+	/**
+	 * @return 去掉重复的项之后实际加了多少项
+	 */
+	public int appendData(List<T> data) {
+		return appendData(data, getLoadState());
+	}
+
+	/**
+	 * 加到最后，同时把load区域的状态改成loadState，只通知新加的部分
+	 * 设置了ItemIdProvider的时候已经有了的项会被去掉
+	 *
+	 * @return 实际加了多少项
+	 */
+	public int appendData(List<T> data, int loadState) {
+		List<T> added = distinct(data);
+		if (added.isEmpty()) {
+			setLoadState(loadState);
+			return 0;
+		}
+		mSubmitGeneration++;
+		if (mIdProvider != null) {
+			int sequence = mFirstSequence + mData.size();
+			for (T item : added) {
+				indexItem(item, sequence++);
+			}
+		}
+		int start = mData.size();
+		mData.addAll(added);
+		if (mSectionProvider != null && !mSectionDirty) {
+			indexSections(start);
+		}
+		notifyItemsAppended(added.size(), loadState);
+		return added.size();
+	}
+
+	/**
+	 * 在最前面插入数据，只通知插入的部分，RecyclerView会保持当前看到的位置不变
+	 * 设置了ItemIdProvider的时候已经有了的项会被去掉
+	 *
+	 * @return 实际插入了多少项
+	 */
+	public int prependData(List<T> data) {
+		List<T> added = distinct(data);
+		if (added.isEmpty()) {
+			return 0;
+		}
+		mSubmitGeneration++;
+		if (mIdProvider != null) {
+			mFirstSequence -= added.size();
+			int sequence = mFirstSequence;
+			for (T item : added) {
+				indexItem(item, sequence++);
+			}
+		}
+		mData.addAll(0, added);
+		mSectionDirty = true;
+		notifyRangeInserted(0, added.size());
+		return added.size();
+	}
+
+	public void removeRange(int start, int count) {
+		if (count <= 0) {
+			return;
+		}
+		mSubmitGeneration++;
+		flushPendingInserts();
+		if (mIdProvider != null && !mIndexDirty) {
+			if (start == 0 || start + count == mData.size()) {
+				// 从两头删除的时候只需要删掉这些id，中间的位置都不会变
+				for (int index = start; index < start + count; index++) {
+					T item = mData.get(index);
+					if (item != null) {
+						mIdIndex.remove(mIdProvider.getItemId(item));
+					}
+				}
+				if (start == 0) {
+					mFirstSequence += count;
+				}
+			} else {
+				mIndexDirty = true;
+			}
+		}
+		mData.subList(start, start + count).clear();
+		mSectionDirty = true;
+		notifyItemRangeRemoved(start, count);
+		if (mData.isEmpty()) {
+			// 原来的load区域变成了没有内容区域
+			notifyItemChanged(0);
+		}
+	}
+
+	/**
+	 * 开始一个事务，可以在任意线程里面调用，往后加、删除和改变load区域状态的操作先记在事务里面
+	 * commit()之后到下一帧在主线程里面和同一帧里面提交的其他事务一起执行，连续往后加的数据合并成一次通知
+	 */
+	public Transaction<T> beginTransaction() {
+		return new Transaction<>(this);
+	}
+
+	/**
+	 * 主线程调用，马上执行已经提交了的事务，比如在直接修改数据之前
+	 * submitList()还在diff的时候不会执行，等新的数据交给adapter之后再执行，否则diff的结果就对不上了
+	 * 设置了ItemIdProvider的时候往后加的重复项在加入事务的时候就去掉，删除的位置按去掉重复项之后的数据算，超出范围的部分忽略
+	 */
+	public void executePendingTransactions() {
+		mDrainScheduled.set(false);
+		if (mDiffInFlight) {
+			return;
+		}
+		List<T> appended = null;
+		// 还没有通知的部分里面的id，用来去重
+		LongIntHashMap appendedIds = mIdProvider == null ? null : new LongIntHashMap();
+		int loadState = getLoadState();
+		boolean stateChanged = false;
+		Transaction<T> transaction;
+		while ((transaction = mTransactions.poll()) != null) {
+			for (Operation<T> operation : transaction.mOperations) {
+				switch (operation.mType) {
+					case Operation.APPEND:
+						if (appended == null) {
+							appended = new ArrayList<>();
+						}
+						stageAppend(appended, appendedIds, operation.mData);
+						break;
+					case Operation.REMOVE:
+						int from = operation.mStart - mData.size();
+						if (appended != null && from >= 0) {
+							// 删除的是还没有通知的部分，直接去掉，不用通知
+							List<T> removed = appended.subList(Math.min(from, appended.size()),
+															   Math.min(from + operation.mCount, appended.size()));
+							if (appendedIds != null) {
+								for (T item : removed) {
+									if (item != null) {
+										appendedIds.remove(mIdProvider.getItemId(item));
+									}
+								}
+							}
+							removed.clear();
+							break;
+						}
+						if (appended != null) {
+							// 删除的位置是按前面加完之后的数据算的
+							appendData(appended, getLoadState());
+							appended = null;
+							if (appendedIds != null) {
+								appendedIds.clear();
+							}
+						}
+						int start = Math.max(0, operation.mStart);
+						removeRange(start, Math.min(operation.mStart + operation.mCount, mData.size()) - start);
+						break;
+					case Operation.LOAD_STATE:
+						loadState = operation.mStart;
+						stateChanged = true;
+						break;
+				}
+			}
+		}
+		if (appended != null) {
+			appendData(appended, loadState);
+		}
+		if (stateChanged) {
+			dispatchLoadState(loadState);
+		}
+	}
+
+	/**
+	 * 去掉已经在adapter里面和已经在staged里面的项，之后删除的位置才和appendData()实际加进去的对得上
+	 */
+	private void stageAppend(List<T> staged, LongIntHashMap stagedIds, List<T> data) {
+		if (stagedIds == null) {
+			staged.addAll(data);
+			return;
+		}
+		ensureIndex();
+		for (T item : data) {
+			if (item != null) {
+				long id = mIdProvider.getItemId(item);
+				if (mIdIndex.containsKey(id) || stagedIds.containsKey(id)) {
+					continue;
+				}
+				stagedIds.put(id, 0);
+			}
+			staged.add(item);
+		}
+	}
+
+	void enqueue(Transaction<T> transaction) {
+		mTransactions.offer(transaction);
+		scheduleDrain();
+	}
+
+	private void scheduleDrain() {
+		if (!mTransactions.isEmpty() && mDrainScheduled.compareAndSet(false, true)) {
+			mMainHandler.post(mScheduleDrain);
+		}
+	}
+
+	/**
+	 * diff的结果已经交给adapter或者被整个替换掉了，diff过程中提交的事务在新的数据上执行
+	 */
+	private void finishDiff() {
+		if (mDiffInFlight) {
+			mDiffInFlight = false;
+			scheduleDrain();
+		}
+	}
+
+	/**
+	 * 先回到主线程，再等到下一帧的动画阶段，这样同一帧里面提交的事务只会引起一次布局
+	 */
+	private final Runnable mScheduleDrain = new Runnable() {
+		@Override
+		public void run() {
+			postOnNextFrame(mDrain);
+		}
+	};
+
+	private final Runnable mDrain = new Runnable() {
+		@Override
+		public void run() {
+			executePendingTransactions();
+		}
+	};
+
+	private void notifyRangeInserted(int start, int count) {
+		notifyItemRangeInserted(start, count);
+		if (mData.size() == count) {
+			// 原来的没有内容区域变成了load区域
+			notifyItemChanged(count);
+		}
+	}
+
+	/**
+	 * 去掉已经在adapter里面的项和data里面重复的项
+	 */
+	private List<T> distinct(List<T> data) {
+		if (data == null || data.isEmpty()) {
+			return Collections.emptyList();
+		}
+		if (mIdProvider == null) {
+			return data;
+		}
+		ensureIndex();
+		List<T> result = new ArrayList<>(data.size());
+		LongIntHashMap seen = new LongIntHashMap(data.size());
+		for (T item : data) {
+			if (item != null) {
+				long id = mIdProvider.getItemId(item);
+				if (mIdIndex.containsKey(id) || seen.containsKey(id)) {
+					continue;
+				}
+				seen.put(id, 0);
+			}
+			result.add(item);
+		}
+		return result;
+	}
+
+	private void indexItem(T item, int sequence) {
+		if (item != null) {
+			mIdIndex.put(mIdProvider.getItemId(item), sequence);
+		}
+	}
+
+	private void invalidateIndexes() {
+		mIndexDirty = true;
+		mSectionDirty = true;
+	}
+
+	private void ensureSections() {
+		if (!mSectionDirty) {
+			return;
+		}
+		mSectionDirty = false;
+		mSectionIndex.clear();
+		mSectionKeys.clear();
+		indexSections(0);
+	}
+
+	/**
+	 * 从start开始往后分组，没有加载的项(null)算在前一组里面
+	 */
+	private void indexSections(int start) {
+		Object lastKey = mSectionKeys.isEmpty() ? null : mSectionKeys.get(mSectionKeys.size() - 1);
+		for (int index = start; index < mData.size(); index++) {
+			T item = mData.get(index);
+			if (item == null) {
+				continue;
+			}
+			Object key = mSectionProvider.getSectionKey(item);
+			if (mSectionKeys.isEmpty() || !(key == null ? lastKey == null : key.equals(lastKey))) {
+				mSectionIndex.appendSection(index);
+				mSectionKeys.add(key);
+				lastKey = key;
+			}
+		}
+	}
+
+	/**
+	 * 整个替换数据或者从中间删除之后重新建立索引
+	 */
+	private void ensureIndex() {
+		if (!mIndexDirty) {
+			return;
+		}
+		mIndexDirty = false;
+		mIdIndex.clear();
+		mFirstSequence = 0;
+		for (int index = 0; index < mData.size(); index++) {
+			indexItem(mData.get(index), index);
+		}
+	}
+
+	/**
+	 * 当前数据的快照，之后adapter的修改不会影响它，可以交给后台线程做diff、过滤或者保存
+	 * 一般情况下是O(1)的，不会拷贝数据
+	 */
+	public List<T> snapshot() {
+		if (mData instanceof ItemStore) {
+			return ((ItemStore<T>) mData).snapshot();
+		}
+		return Collections.unmodifiableList(new ArrayList<>(mData));
+	}
+
+	public List<T> getData() {
+		return Collections.unmodifiableList(mData);
+	}
+
+	public T getItem(int position) {
+		return mData.get(position);
+	}
+
+	@Override
+	protected long getItemStableId(int position) {
+		T item = mData.get(position);
+		return mIdProvider == null || item == null ? RecyclerView.NO_ID : mIdProvider.getItemId(item);
+	}
+
+	@Override
+	protected boolean isPlaceholder(int position) {
+		return mData.get(position) == null;
+	}
+
+	@Override
+	public int onItemCount() {
+		return mData.size();
+	}
+
+	/**
+	 * 一组对adapter的修改，在哪个线程里面创建就在哪个线程里面使用，commit()之后不能再修改
+	 * 删除的位置按这个事务和之前提交的事务里面前面的操作执行完之后的数据算
+	 */
+	public static final class Transaction<T> {
+
+		private final LoadRecyclerListAdapter<T> mAdapter;
+		private final List<Operation<T>>         mOperations;
+		private       boolean                    mCommitted;
+
+		Transaction(LoadRecyclerListAdapter<T> adapter) {
+			mAdapter = adapter;
+			mOperations = new ArrayList<>();
+		}
+
+		/**
+		 * data会被拷贝，之后调用者可以继续使用
+		 */
+		public Transaction<T> append(List<T> data) {
+			if (data != null && !data.isEmpty()) {
+				add(new Operation<>(Operation.APPEND, new ArrayList<>(data), 0, 0));
+			}
+			return this;
+		}
+
+		public Transaction<T> removeRange(int start, int count) {
+			if (count > 0) {
+				add(new Operation<T>(Operation.REMOVE, null, start, count));
+			}
+			return this;
+		}
+
+		/**
+		 * 多次设置的时候以最后一次为准，和LoadRecyclerView的加载状态一起更新
+		 */
+		public Transaction<T> setLoadState(int state) {
+			add(new Operation<T>(Operation.LOAD_STATE, null, state, 0));
+			return this;
+		}
+
+		public void commit() {
+			checkNotCommitted();
+			mCommitted = true;
+			if (!mOperations.isEmpty()) {
+				mAdapter.enqueue(this);
+			}
+		}
+
+		private void add(Operation<T> operation) {
+			checkNotCommitted();
+			mOperations.add(operation);
+		}
+
+		private void checkNotCommitted() {
+			if (mCommitted) {
+				throw new IllegalStateException("transaction already committed");
+			}
+		}
+	}
+
+	private static final class Operation<T> {
+
+		static final int APPEND     = 0;
+		static final int REMOVE     = 1;
+		static final int LOAD_STATE = 2;
+
+		final int     mType;
+		final List<T> mData;
+		/**
+		 * 删除的开始位置，LOAD_STATE的时候是新的状态
+		 */
+		final int     mStart;
+		final int     mCount;
+
+		Operation(int type, List<T> data, int start, int count) {
+			mType = type;
+			mData = data;
+			mStart = start;
+			mCount = count;
+		}
+	}
+}
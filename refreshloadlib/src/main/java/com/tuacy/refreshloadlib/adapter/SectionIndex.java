@@ -0,0 +1,66 @@
+package com.tuacy.refreshloadlib.adapter;
+
+/**
+ * 分组列表的索引，按顺序保存每一组第一项的位置(也就是前面所有组的项数之和)
+ * 通过位置找所在的组用二分查找，O(log n)，往最后加组是均摊O(1)
+ */
+public class SectionIndex {
+
+	private int[] mStarts;
+	private int   mCount;
+
+	public SectionIndex() {
+		mStarts = new int[16];
+	}
+
+	public int getSectionCount() {
+		return mCount;
+	}
+
+	/**
+	 * 在最后加一组
+	 *
+	 * @param start 这一组第一项的位置，要大于上一组第一项的位置
+	 */
+	public void appendSection(int start) {
+		if (mCount > 0 && start <= mStarts[mCount - 1]) {
+			throw new IllegalArgumentException("section start " + start + " must be after " + mStarts[mCount - 1]);
+		}
+		if (mCount == mStarts.length) {
+			int[] starts = new int[mCount * 2];
+			System.arraycopy(mStarts, 0, starts, 0, mCount);
+			mStarts = starts;
+		}
+		mStarts[mCount++] = start;
+	}
+
+	public int getSectionStart(int section) {
+		return mStarts[section];
+	}
+
+	/**
+	 * @return position所在的组，position在第一组之前的时候返回-1
+	 */
+	public int getSectionForPosition(int position) {
+		int low = 0;
+		int high = mCount - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (mStarts[middle] <= position) {
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return high;
+	}
+
+	public boolean isSectionStart(int position) {
+		int section = getSectionForPosition(position);
+		return section >= 0 && mStarts[section] == position;
+	}
+
+	public void clear() {
+		mCount = 0;
+	}
+}
@@ -0,0 +1,370 @@
+package com.tuacy.refreshloadlib.adapter;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * 紧凑的String列表，数据量很大的时候用，所有的String按UTF-8编码连续的放在大块的ByteBuffer(arena)里面，
+ * 每一项只保存一个int的位置和一个int的长度，get()的时候才解码，省掉了每个String的对象头和UTF-16的开销
+ * 删除的时候只删索引，没用的字节超过一半的时候整理一次
+ * 快照和ChunkedList一样是O(1)的，arena只会往后写，整理的时候写到新的arena里面
+ */
+public class Utf8ArenaStore extends AbstractList<String> implements ItemStore<String>, RandomAccess {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * 位置的高位是第几个arena，低位是arena里面的偏移
+	 */
+	private static final int ARENA_SHIFT    = 18;
+	private static final int ARENA_SIZE     = 1 << ARENA_SHIFT;
+	private static final int OFFSET_MASK    = ARENA_SIZE - 1;
+	private static final int MAX_ARENAS     = 1 << (31 - ARENA_SHIFT);
+	private static final int NULL_LENGTH    = -1;
+	private static final int INITIAL_LENGTH = 64;
+
+	private       ByteBuffer[]   mArenas;
+	private       int            mArenaCount;
+	private       int[]          mPositions;
+	private       int[]          mLengths;
+	private       int            mSize;
+	/**
+	 * 所有的项一共占了多少字节，和arena里面已经写了的字节比较，决定什么时候整理
+	 */
+	private       long           mLiveBytes;
+	private       long           mWrittenBytes;
+	private       boolean        mShared;
+	private final boolean        mImmutable;
+	private final CharsetEncoder mEncoder;
+
+	public Utf8ArenaStore() {
+		this(null);
+	}
+
+	public Utf8ArenaStore(Collection<? extends String> data) {
+		mArenas = new ByteBuffer[4];
+		mPositions = new int[INITIAL_LENGTH];
+		mLengths = new int[INITIAL_LENGTH];
+		mImmutable = false;
+		mEncoder = UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+						.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		if (data != null) {
+			addAll(data);
+		}
+	}
+
+	private Utf8ArenaStore(ByteBuffer[] arenas, int[] positions, int[] lengths, int size) {
+		mArenas = arenas;
+		mPositions = positions;
+		mLengths = lengths;
+		mSize = size;
+		mImmutable = true;
+		mEncoder = null;
+	}
+
+	@Override
+	public Utf8ArenaStore snapshot() {
+		if (mImmutable) {
+			return this;
+		}
+		mShared = true;
+		return new Utf8ArenaStore(mArenas, mPositions, mLengths, mSize);
+	}
+
+	@Override
+	public int size() {
+		return mSize;
+	}
+
+	/**
+	 * 读的时候只用arena的数组和绝对的偏移，不碰ByteBuffer的position，后台线程读快照是安全的
+	 */
+	@Override
+	public String get(int index) {
+		checkIndex(index, mSize);
+		int length = mLengths[index];
+		if (length == NULL_LENGTH) {
+			return null;
+		}
+		if (length == 0) {
+			return "";
+		}
+		int position = mPositions[index];
+		ByteBuffer arena = mArenas[position >>> ARENA_SHIFT];
+		return new String(arena.array(), arena.arrayOffset() + (position & OFFSET_MASK), length, UTF_8);
+	}
+
+	@Override
+	public String set(int index, String element) {
+		checkMutable();
+		checkIndex(index, mSize);
+		String old = get(index);
+		ensureOwned();
+		release(index);
+		write(index, element);
+		compactIfNeeded();
+		return old;
+	}
+
+	@Override
+	public boolean add(String element) {
+		checkMutable();
+		modCount++;
+		ensureLength(mSize + 1);
+		write(mSize, element);
+		mSize++;
+		return true;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends String> collection) {
+		return addAll(mSize, collection);
+	}
+
+	@Override
+	public void add(int index, String element) {
+		checkMutable();
+		checkIndex(index, mSize + 1);
+		modCount++;
+		openGap(index, 1);
+		write(index, element);
+	}
+
+	/**
+	 * 往最后加的时候只写快照看不到的部分，插到中间的时候先拷贝索引再挪
+	 */
+	@Override
+	public boolean addAll(int index, Collection<? extends String> collection) {
+		checkMutable();
+		checkIndex(index, mSize + 1);
+		int count = collection.size();
+		if (count == 0) {
+			return false;
+		}
+		modCount++;
+		openGap(index, count);
+		int position = index;
+		for (String element : collection) {
+			write(position++, element);
+		}
+		return true;
+	}
+
+	@Override
+	public String remove(int index) {
+		String old = get(index);
+		removeRange(index, index + 1);
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		checkMutable();
+		modCount++;
+		// 快照可能还在用原来的arena，不能复用
+		mArenas = new ByteBuffer[4];
+		mArenaCount = 0;
+		mPositions = new int[INITIAL_LENGTH];
+		mLengths = new int[INITIAL_LENGTH];
+		mSize = 0;
+		mLiveBytes = 0;
+		mWrittenBytes = 0;
+		mShared = false;
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		checkMutable();
+		if (fromIndex < 0 || toIndex > mSize || fromIndex > toIndex) {
+			throw new IndexOutOfBoundsException("from " + fromIndex + " to " + toIndex + " size " + mSize);
+		}
+		if (fromIndex == toIndex) {
+			return;
+		}
+		modCount++;
+		ensureOwned();
+		for (int index = fromIndex; index < toIndex; index++) {
+			release(index);
+		}
+		System.arraycopy(mPositions, toIndex, mPositions, fromIndex, mSize - toIndex);
+		System.arraycopy(mLengths, toIndex, mLengths, fromIndex, mSize - toIndex);
+		mSize -= toIndex - fromIndex;
+		compactIfNeeded();
+	}
+
+	/**
+	 * 在index的位置空出count项，索引后面的部分往后挪
+	 */
+	private void openGap(int index, int count) {
+		if (index < mSize) {
+			ensureOwned();
+		}
+		ensureLength(mSize + count);
+		System.arraycopy(mPositions, index, mPositions, index + count, mSize - index);
+		System.arraycopy(mLengths, index, mLengths, index + count, mSize - index);
+		mSize += count;
+	}
+
+	private void write(int index, String element) {
+		if (element == null || element.isEmpty()) {
+			// 空的项不占arena
+			mPositions[index] = 0;
+			mLengths[index] = element == null ? NULL_LENGTH : 0;
+			return;
+		}
+		ByteBuffer arena = mArenaCount == 0 ? null : mArenas[mArenaCount - 1];
+		int start = arena == null ? 0 : arena.position();
+		if (arena == null || !encode(element, arena)) {
+			// 当前的arena放不下，开一个新的，超长的String单独用一个刚好放得下的arena
+			arena = newArena(Math.max(ARENA_SIZE, (int) (element.length() * mEncoder.maxBytesPerChar()) + 1));
+			start = 0;
+			if (!encode(element, arena)) {
+				throw new IllegalStateException("string does not fit in a new arena");
+			}
+			sealIfOversized(arena);
+		}
+		int length = arena.position() - start;
+		mPositions[index] = ((mArenaCount - 1) << ARENA_SHIFT) | start;
+		mLengths[index] = length;
+		mLiveBytes += length;
+		mWrittenBytes += length;
+	}
+
+	/**
+	 * @return 放不下的时候返回false，arena的position不变
+	 */
+	private boolean encode(String element, ByteBuffer arena) {
+		int start = arena.position();
+		mEncoder.reset();
+		CoderResult result = mEncoder.encode(CharBuffer.wrap(element), arena, true);
+		if (!result.isOverflow()) {
+			result = mEncoder.flush(arena);
+		}
+		if (result.isOverflow()) {
+			arena.position(start);
+			return false;
+		}
+		if (result.isError()) {
+			try {
+				result.throwException();
+			} catch (CharacterCodingException e) {
+				throw new IllegalArgumentException(e);
+			}
+		}
+		return true;
+	}
+
+	private ByteBuffer newArena(int capacity) {
+		if (mArenaCount == MAX_ARENAS) {
+			throw new IllegalStateException("too many arenas");
+		}
+		if (mArenaCount == mArenas.length) {
+			ByteBuffer[] arenas = new ByteBuffer[mArenas.length * 2];
+			System.arraycopy(mArenas, 0, arenas, 0, mArenaCount);
+			mArenas = arenas;
+		}
+		// 快照只读它自己能看到的arena，往后面的空位写不会影响它
+		ByteBuffer arena = ByteBuffer.allocate(capacity);
+		mArenas[mArenaCount++] = arena;
+		return arena;
+	}
+
+	/**
+	 * 超长的arena只放一项，偏移超过ARENA_SIZE的时候位置就编码不下了
+	 */
+	private static void sealIfOversized(ByteBuffer arena) {
+		if (arena.capacity() > ARENA_SIZE) {
+			arena.limit(arena.position());
+		}
+	}
+
+	private void release(int index) {
+		if (mLengths[index] != NULL_LENGTH) {
+			mLiveBytes -= mLengths[index];
+		}
+	}
+
+	/**
+	 * 没用的字节超过一半的时候把还在用的字节拷贝到新的arena里面，不需要重新编码
+	 */
+	private void compactIfNeeded() {
+		long deadBytes = mWrittenBytes - mLiveBytes;
+		if (deadBytes < ARENA_SIZE || deadBytes < mLiveBytes) {
+			return;
+		}
+		ByteBuffer[] oldArenas = mArenas;
+		int[] positions = new int[Math.max(INITIAL_LENGTH, mSize)];
+		int[] lengths = new int[positions.length];
+		mArenas = new ByteBuffer[4];
+		mArenaCount = 0;
+		mWrittenBytes = 0;
+		ByteBuffer arena = null;
+		for (int index = 0; index < mSize; index++) {
+			int length = mLengths[index];
+			lengths[index] = length;
+			if (length <= 0) {
+				continue;
+			}
+			if (arena == null || arena.remaining() < length) {
+				arena = newArena(Math.max(ARENA_SIZE, length));
+			}
+			int position = mPositions[index];
+			ByteBuffer source = oldArenas[position >>> ARENA_SHIFT];
+			positions[index] = ((mArenaCount - 1) << ARENA_SHIFT) | arena.position();
+			arena.put(source.array(), source.arrayOffset() + (position & OFFSET_MASK), length);
+			sealIfOversized(arena);
+			mWrittenBytes += length;
+		}
+		mPositions = positions;
+		mLengths = lengths;
+		mShared = false;
+	}
+
+	/**
+	 * 有快照的时候先拷贝一份索引，arena不拷贝
+	 */
+	private void ensureOwned() {
+		if (!mShared) {
+			return;
+		}
+		mPositions = copyOf(mPositions, mSize, mPositions.length);
+		mLengths = copyOf(mLengths, mSize, mLengths.length);
+		mShared = false;
+	}
+
+	private void ensureLength(int length) {
+		if (length <= mPositions.length) {
+			return;
+		}
+		int capacity = Math.max(length, mPositions.length * 2);
+		mPositions = copyOf(mPositions, mSize, capacity);
+		mLengths = copyOf(mLengths, mSize, capacity);
+		mShared = false;
+	}
+
+	private void checkMutable() {
+		if (mImmutable) {
+			throw new UnsupportedOperationException("snapshot is immutable");
+		}
+	}
+
+	private static void checkIndex(int index, int size) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + " size " + size);
+		}
+	}
+
+	private static int[] copyOf(int[] source, int length, int capacity) {
+		int[] copy = new int[capacity];
+		System.arraycopy(source, 0, copy, 0, length);
+		return copy;
+	}
+}
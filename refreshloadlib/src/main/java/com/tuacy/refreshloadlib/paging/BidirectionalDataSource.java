@@ -0,0 +1,12 @@
+package com.tuacy.refreshloadlib.paging;
+
+/**
+ * 可以往前加载的数据源，比如聊天界面往上加载更早的消息
+ */
+public interface BidirectionalDataSource<Key, T> extends PagedDataSource<Key, T> {
+
+	/**
+	 * 加载key之前的一页，返回的数据还是按照列表里面的顺序排列
+	 */
+	Page<Key, T> loadBefore(Key key, int pageSize) throws Exception;
+}
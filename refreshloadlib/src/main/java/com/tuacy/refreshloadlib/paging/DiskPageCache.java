@@ -0,0 +1,232 @@
+package com.tuacy.refreshloadlib.paging;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 页的磁盘缓存，一页一个文件，按最近使用的顺序淘汰，总大小不超过maxSize
+ * 文件格式: MAGIC, VERSION, key, 个数, 然后每一项是[长度][字节]，读的时候通过MappedByteBuffer读取
+ * 文件可能被截断或者损坏，读出来的长度和个数分配内存之前先和文件剩下的大小比较，不对的时候当成没有缓存并删掉文件
+ * 所有的方法都会读写磁盘，要在后台线程中调用
+ */
+public class DiskPageCache<T> {
+
+	private static final int     MAGIC     = 0x52504331;
+	private static final int     VERSION   = 1;
+	private static final String  SUFFIX    = ".page";
+	private static final String  TEMP      = ".tmp";
+	private static final Charset UTF_8     = Charset.forName("UTF-8");
+
+	private final File         mDirectory;
+	private final long         mMaxSize;
+	private final PageCodec<T> mCodec;
+	/**
+	 * 文件名到文件大小，按访问顺序排列，第一个是最久没有用过的
+	 */
+	private final LinkedHashMap<String, Long> mEntries;
+	private       long                        mSize;
+	private       boolean                     mInitialized;
+
+	public DiskPageCache(File directory, long maxSize, PageCodec<T> codec) {
+		mDirectory = directory;
+		mMaxSize = maxSize;
+		mCodec = codec;
+		mEntries = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * @return 没有缓存或者缓存读取失败的时候返回null
+	 */
+	public synchronized List<T> get(String key) {
+		initialize();
+		String name = fileName(key);
+		if (!mEntries.containsKey(name)) {
+			return null;
+		}
+		File file = new File(mDirectory, name);
+		RandomAccessFile randomAccessFile = null;
+		try {
+			randomAccessFile = new RandomAccessFile(file, "r");
+			FileChannel channel = randomAccessFile.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException("bad page cache header");
+			}
+			byte[] keyBytes = readBytes(buffer);
+			if (!key.equals(new String(keyBytes, UTF_8))) {
+				// 文件名冲突了
+				return null;
+			}
+			int count = buffer.getInt();
+			// 每一项至少有4个字节的长度
+			if (count < 0 || count > buffer.remaining() / 4) {
+				throw new IOException("bad page cache item count: " + count);
+			}
+			List<T> items = new ArrayList<>(count);
+			for (int index = 0; index < count; index++) {
+				items.add(mCodec.decode(readBytes(buffer)));
+			}
+			file.setLastModified(System.currentTimeMillis());
+			return items;
+		} catch (IOException | RuntimeException e) {
+			removeEntry(name);
+			return null;
+		} finally {
+			closeQuietly(randomAccessFile);
+		}
+	}
+
+	public synchronized void put(String key, List<T> items) {
+		initialize();
+		String name = fileName(key);
+		File temp = new File(mDirectory, name + TEMP);
+		File file = new File(mDirectory, name);
+		DataOutputStream output = null;
+		try {
+			output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			byte[] keyBytes = key.getBytes(UTF_8);
+			output.writeInt(keyBytes.length);
+			output.write(keyBytes);
+			output.writeInt(items.size());
+			for (T item : items) {
+				byte[] bytes = mCodec.encode(item);
+				output.writeInt(bytes.length);
+				output.write(bytes);
+			}
+			output.close();
+			output = null;
+			removeEntry(name);
+			if (!temp.renameTo(file)) {
+				throw new IOException("rename page cache failed");
+			}
+			mEntries.put(name, file.length());
+			mSize += file.length();
+			trimToSize();
+		} catch (IOException | RuntimeException e) {
+			temp.delete();
+		} finally {
+			closeQuietly(output);
+		}
+	}
+
+	public synchronized void remove(String key) {
+		initialize();
+		removeEntry(fileName(key));
+	}
+
+	public synchronized void clear() {
+		initialize();
+		for (String name : new ArrayList<>(mEntries.keySet())) {
+			removeEntry(name);
+		}
+	}
+
+	/**
+	 * 第一次用的时候扫描一下目录，按文件的修改时间恢复访问顺序
+	 */
+	private void initialize() {
+		if (mInitialized) {
+			return;
+		}
+		mInitialized = true;
+		if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+			return;
+		}
+		File[] files = mDirectory.listFiles();
+		if (files == null) {
+			return;
+		}
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File lhs, File rhs) {
+				long lhsModified = lhs.lastModified();
+				long rhsModified = rhs.lastModified();
+				return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+			}
+		});
+		for (File file : files) {
+			if (file.getName().endsWith(SUFFIX)) {
+				mEntries.put(file.getName(), file.length());
+				mSize += file.length();
+			} else if (file.getName().endsWith(TEMP)) {
+				file.delete();
+			}
+		}
+		trimToSize();
+	}
+
+	private void trimToSize() {
+		Iterator<Map.Entry<String, Long>> iterator = mEntries.entrySet().iterator();
+		while (mSize > mMaxSize && iterator.hasNext()) {
+			Map.Entry<String, Long> entry = iterator.next();
+			new File(mDirectory, entry.getKey()).delete();
+			mSize -= entry.getValue();
+			iterator.remove();
+		}
+	}
+
+	private void removeEntry(String name) {
+		Long size = mEntries.remove(name);
+		if (size != null) {
+			mSize -= size;
+		}
+		new File(mDirectory, name).delete();
+	}
+
+	/**
+	 * 读一段[长度][字节]，长度超出文件剩下的大小的时候抛出IOException，不会按错误的长度分配内存
+	 */
+	private static byte[] readBytes(MappedByteBuffer buffer) throws IOException {
+		if (buffer.remaining() < 4) {
+			throw new IOException("truncated page cache");
+		}
+		int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining()) {
+			throw new IOException("bad page cache length: " + length);
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	private static String fileName(String key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(UTF_8));
+			StringBuilder builder = new StringBuilder(digest.length * 2 + SUFFIX.length());
+			for (byte value : digest) {
+				builder.append(Character.forDigit((value >> 4) & 0xF, 16)).append(Character.forDigit(value & 0xF, 16));
+			}
+			return builder.append(SUFFIX).toString();
+		} catch (NoSuchAlgorithmException e) {
+			return Integer.toHexString(key.hashCode()) + SUFFIX;
+		}
+	}
+
+	private static void closeQuietly(java.io.Closeable closeable) {
+		if (closeable == null) {
+			return;
+		}
+		try {
+			closeable.close();
+		} catch (IOException ignored) {
+		}
+	}
+}
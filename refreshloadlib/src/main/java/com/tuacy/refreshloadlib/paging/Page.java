@@ -0,0 +1,58 @@
+package com.tuacy.refreshloadlib.paging;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一页数据
+ */
+public class Page<Key, T> {
+
+	private final List<T> mData;
+	private final Key     mPrevKey;
+	private final Key     mNextKey;
+	private final boolean mHasPrevious;
+	private final boolean mHasMore;
+
+	/**
+	 * nextKey为null的时候表示没有更多数据了
+	 */
+	public Page(List<T> data, Key nextKey) {
+		this(data, nextKey, nextKey != null);
+	}
+
+	public Page(List<T> data, Key nextKey, boolean hasMore) {
+		this(data, null, nextKey, false, hasMore);
+	}
+
+	/**
+	 * BidirectionalDataSource用，prevKey用来加载这一页之前的数据
+	 */
+	public Page(List<T> data, Key prevKey, Key nextKey, boolean hasPrevious, boolean hasMore) {
+		mData = data == null ? Collections.<T>emptyList() : data;
+		mPrevKey = prevKey;
+		mNextKey = nextKey;
+		mHasPrevious = hasPrevious;
+		mHasMore = hasMore;
+	}
+
+	public List<T> getData() {
+		return mData;
+	}
+
+	public Key getPrevKey() {
+		return mPrevKey;
+	}
+
+	public Key getNextKey() {
+		return mNextKey;
+	}
+
+	public boolean hasPrevious() {
+		return mHasPrevious;
+	}
+
+	public boolean hasMore() {
+		return mHasMore;
+	}
+}
@@ -0,0 +1,11 @@
+package com.tuacy.refreshloadlib.paging;
+
+/**
+ * DiskPageCache用来把每一项转换成字节
+ */
+public interface PageCodec<T> {
+
+	byte[] encode(T item);
+
+	T decode(byte[] bytes);
+}
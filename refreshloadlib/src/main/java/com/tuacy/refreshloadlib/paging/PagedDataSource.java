@@ -0,0 +1,20 @@
+package com.tuacy.refreshloadlib.paging;
+
+/**
+ * 分页数据源，在后台线程中调用
+ *
+ * @param <Key> 分页的游标，由数据源自己决定是什么(页码，最后一条数据的id，服务器返回的cursor等等)
+ * @param <T>   每一项的数据
+ */
+public interface PagedDataSource<Key, T> {
+
+	/**
+	 * 加载第一页
+	 */
+	Page<Key, T> loadInitial(int pageSize) throws Exception;
+
+	/**
+	 * 加载key之后的一页
+	 */
+	Page<Key, T> loadAfter(Key key, int pageSize) throws Exception;
+}
@@ -0,0 +1,781 @@
+package com.tuacy.refreshloadlib.paging;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Parcel;
+import android.support.v4.app.FragmentActivity;
+
+import com.tuacy.refreshloadlib.adapter.LoadRecyclerListAdapter;
+import com.tuacy.refreshloadlib.view.LoadRecyclerView;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 把PagedDataSource，LoadRecyclerView，LoadRecyclerListAdapter串起来
+ * 数据在后台线程加载，在主线程交给adapter，没有更多数据的时候自动completeLoadAll()
+ * 设置了setMaxPages()之后内存里面最多只保留这么多页，离当前位置远的页会被丢掉，滑回去的时候重新加载
+ */
+public class PagedLoader<Key, T> implements LoadRecyclerView.OnLoadMoreListener, LoadRecyclerView.OnLoadPreviousListener {
+
+	private static final int DEFAULT_PAGE_SIZE = 20;
+	/**
+	 * 保证当前看到的页和它前后的页不会被丢掉
+	 */
+	private static final int MIN_MAX_PAGES     = 3;
+
+	private static final int  POOL_SIZE       = 2;
+	private static final int  POOL_QUEUE_SIZE = 16;
+	private static final long POOL_KEEP_ALIVE = 30;
+
+	/**
+	 * 进程被杀的时候保存的数据的大小上限，整个Bundle要在Binder传输的限制以内
+	 */
+	private static final int DEFAULT_MAX_SNAPSHOT_SIZE = 64 * 1024;
+
+	private static final String KEY_PAGE_COUNT      = "page_count";
+	private static final String KEY_PAGE            = "page_";
+	private static final String KEY_DROPPED         = "dropped";
+	private static final String KEY_ANCHOR_POSITION = "anchor_position";
+	private static final String KEY_ANCHOR_OFFSET   = "anchor_offset";
+
+	private static final int LOAD_INITIAL = 0;
+	private static final int LOAD_AFTER   = 1;
+	private static final int LOAD_BEFORE  = 2;
+
+	private static Executor sDefaultExecutor;
+
+	private final LoadRecyclerView           mRecyclerView;
+	private final LoadRecyclerListAdapter<T> mAdapter;
+	private final PagedDataSource<Key, T>    mDataSource;
+	private final Handler                    mMainHandler;
+	private       Executor                   mExecutor;
+	private       int                        mPageSize;
+	private       int                        mMaxPages;
+	private       Callback                   mCallback;
+	/**
+	 * 每次刷新加一，用来丢弃刷新之前发出去的请求的结果
+	 */
+	private       int                        mGeneration;
+	/**
+	 * 头部或者尾部有页被丢掉的时候加一，用来丢弃这一端还没有返回的请求的结果
+	 */
+	private       int                        mHeadVersion;
+	private       int                        mTailVersion;
+	private       boolean                    mRefreshing;
+	/**
+	 * 内存里面的页，和adapter里面的数据一一对应
+	 */
+	private final Deque<PageRecord<Key>>     mPages;
+	/**
+	 * 从头部丢掉的页，只保留加载它的请求，滑回去的时候按原来的请求重新加载
+	 */
+	private final Deque<PageRecord<Key>>     mDroppedHead;
+	private       PagingRetainFragment       mRetainFragment;
+	private       String                     mRetainTag;
+	private       int                        mMaxSnapshotSize;
+	private       DiskPageCache<T>           mDiskCache;
+	private       String                     mCacheKey;
+	private       PagePreparer<T>            mPagePreparer;
+
+	public interface Callback {
+
+		void onRefreshComplete();
+
+		void onLoadFailed(Exception e);
+	}
+
+	/**
+	 * 每一页交给adapter之前在后台线程做的准备工作，比如TextLayoutCache.precompute()提前排版
+	 */
+	public interface PagePreparer<T> {
+
+		void onPreparePage(List<T> data);
+	}
+
+	public PagedLoader(LoadRecyclerView recyclerView, LoadRecyclerListAdapter<T> adapter, PagedDataSource<Key, T> dataSource) {
+		mRecyclerView = recyclerView;
+		mAdapter = adapter;
+		mDataSource = dataSource;
+		mMainHandler = new Handler(Looper.getMainLooper());
+		mExecutor = obtainDefaultExecutor();
+		mPageSize = DEFAULT_PAGE_SIZE;
+		mPages = new ArrayDeque<>();
+		mDroppedHead = new ArrayDeque<>();
+		mMaxSnapshotSize = DEFAULT_MAX_SNAPSHOT_SIZE;
+		mRecyclerView.setOnLoadMoreListener(this);
+		mRecyclerView.setOnLoadPreviousListener(this);
+	}
+
+	/**
+	 * 默认的线程池，线程数和排队的任务数都是有上限的
+	 */
+	static synchronized Executor obtainDefaultExecutor() {
+		if (sDefaultExecutor == null) {
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, POOL_KEEP_ALIVE, TimeUnit.SECONDS,
+																 new LinkedBlockingQueue<Runnable>(POOL_QUEUE_SIZE),
+																 new LoaderThreadFactory());
+			executor.allowCoreThreadTimeOut(true);
+			sDefaultExecutor = executor;
+		}
+		return sDefaultExecutor;
+	}
+
+	public void setExecutor(Executor executor) {
+		mExecutor = executor == null ? obtainDefaultExecutor() : executor;
+	}
+
+	public void setPageSize(int pageSize) {
+		mPageSize = Math.max(1, pageSize);
+	}
+
+	/**
+	 * 内存里面最多保留多少页，0表示不限制
+	 */
+	public void setMaxPages(int maxPages) {
+		mMaxPages = maxPages <= 0 ? 0 : Math.max(MIN_MAX_PAGES, maxPages);
+	}
+
+	public void setCallback(Callback callback) {
+		mCallback = callback;
+	}
+
+	/**
+	 * 进程被杀的时候最多保存多少字节的数据，超过的部分只保存加载它的请求
+	 */
+	public void setMaxSnapshotSize(int maxSnapshotSize) {
+		mMaxSnapshotSize = Math.max(0, maxSnapshotSize);
+	}
+
+	/**
+	 * 第一页的磁盘缓存，第一次加载的时候先显示缓存的数据，同时在后台请求，请求回来之后替换成新的数据
+	 * 只缓存第一页，后面的页的key不一定能保存到磁盘上
+	 *
+	 * @param cacheKey 同一个cache给多个列表用的时候用来区分
+	 */
+	public void setDiskCache(DiskPageCache<T> diskCache, String cacheKey) {
+		mDiskCache = diskCache;
+		mCacheKey = cacheKey;
+	}
+
+	/**
+	 * 在加载页的线程里面调用，准备完了之后才会交给adapter，这一页显示出来之前要做完
+	 */
+	public void setPagePreparer(PagePreparer<T> pagePreparer) {
+		mPagePreparer = pagePreparer;
+	}
+
+	/**
+	 * 在Activity的onCreate()里面调用，恢复之前已经加载的数据和滑动的位置
+	 * 屏幕旋转的时候所有的页都在内存里面保留着，进程被杀的时候恢复保存在savedInstanceState里面的那部分
+	 *
+	 * @return true表示已经恢复了数据，不需要再去请求
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean restoreState(FragmentActivity activity, String tag, Bundle savedInstanceState) {
+		mRetainTag = tag;
+		mRetainFragment = PagingRetainFragment.obtain(activity);
+		// 加载状态跟着页一起恢复，不能被LoadRecyclerView之后恢复的状态覆盖
+		mRecyclerView.skipNextLoadStateRestore();
+		RetainedState<Key, T> retained = (RetainedState<Key, T>) mRetainFragment.take(tag);
+		if (retained != null) {
+			restorePages(retained.mPages, retained.mDropped, retained.mData, retained.mAnchorPosition,
+						 retained.mAnchorOffset);
+			return true;
+		}
+		Bundle snapshot = savedInstanceState == null ? null : savedInstanceState.getBundle(tag);
+		return snapshot != null && restoreSnapshot(snapshot);
+	}
+
+	/**
+	 * 在Activity的onSaveInstanceState()里面调用，之前要先调用过restoreState()
+	 */
+	public void saveState(Bundle outState) {
+		if (mRetainFragment == null) {
+			throw new IllegalStateException("PagedLoader restoreState() must be called before saveState()");
+		}
+		if (mPages.isEmpty()) {
+			return;
+		}
+		int anchorPosition = Math.max(0, Math.min(mRecyclerView.getFirstVisiblePosition(), mAdapter.onItemCount() - 1));
+		int anchorOffset = mRecyclerView.getFirstVisibleOffset();
+		mRetainFragment.put(mRetainTag, new RetainedState<>(new ArrayList<>(mPages), new ArrayList<>(mDroppedHead),
+															mAdapter.snapshot(), anchorPosition, anchorOffset));
+		Bundle snapshot = createSnapshot(anchorPosition, anchorOffset);
+		if (snapshot != null) {
+			outState.putBundle(mRetainTag, snapshot);
+		}
+	}
+
+	/**
+	 * 第一次进入页面的时候调用(restoreState()返回false的时候)，有磁盘缓存的话先显示缓存，再请求第一页
+	 * 列表是空的时候只有没有内容区域，load区域不会attach，不会自己开始加载
+	 */
+	public void loadInitial() {
+		if (mRefreshing || !mPages.isEmpty()) {
+			return;
+		}
+		mRecyclerView.setLoadState(LoadRecyclerView.LOAD_STATE_DOING);
+		onLoadMore();
+	}
+
+	/**
+	 * 重新加载第一页，之前还没有返回的请求结果都会被丢弃
+	 * 还没有任何数据的时候和loadInitial()一样先显示磁盘缓存
+	 */
+	public void refresh() {
+		final int generation = ++mGeneration;
+		final int version = mTailVersion;
+		final boolean empty = mPages.isEmpty();
+		mRefreshing = true;
+		final PageRecord<Key> record = new PageRecord<>(LOAD_INITIAL, null);
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					if (empty) {
+						readCache(generation, version);
+					}
+					Page<Key, T> page = mDataSource.loadInitial(mPageSize);
+					writeCache(page);
+					prepare(page.getData());
+					deliverRefresh(generation, record, page);
+				} catch (Exception e) {
+					deliverError(generation, e, true, false);
+				}
+			}
+		}, generation, true, false);
+	}
+
+	/**
+	 * 不再接收还没有返回的请求结果
+	 */
+	public void release() {
+		mGeneration++;
+		mRefreshing = false;
+		mMainHandler.removeCallbacksAndMessages(null);
+	}
+
+	@Override
+	public void onLoadMore() {
+		if (mRefreshing) {
+			// 刷新回来的时候会reset，这里不需要再加载
+			return;
+		}
+		final int generation = mGeneration;
+		final int version = mTailVersion;
+		PageRecord<Key> last = mPages.peekLast();
+		final PageRecord<Key> record = last == null ? new PageRecord<Key>(LOAD_INITIAL, null) :
+									   new PageRecord<>(LOAD_AFTER, last.mNextKey);
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					if (record.mType == LOAD_INITIAL) {
+						readCache(generation, version);
+					}
+					Page<Key, T> page = load(record);
+					if (record.mType == LOAD_INITIAL) {
+						writeCache(page);
+					}
+					prepare(page.getData());
+					deliverAppend(generation, version, record, page);
+				} catch (Exception e) {
+					deliverError(generation, e, false, false);
+				}
+			}
+		}, generation, false, false);
+	}
+
+	@Override
+	public void onLoadPrevious() {
+		PageRecord<Key> first = mPages.peekFirst();
+		if (mRefreshing || first == null) {
+			mRecyclerView.completeLoadPrevious();
+			return;
+		}
+		final PageRecord<Key> record;
+		if (!mDroppedHead.isEmpty()) {
+			record = mDroppedHead.peekFirst();
+		} else if (first.mHasPrevious && mDataSource instanceof BidirectionalDataSource) {
+			record = new PageRecord<>(LOAD_BEFORE, first.mPrevKey);
+		} else {
+			mRecyclerView.completeLoadPreviousAll();
+			return;
+		}
+		final int generation = mGeneration;
+		final int version = mHeadVersion;
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Page<Key, T> page = load(record);
+					prepare(page.getData());
+					deliverPrepend(generation, version, record, page);
+				} catch (Exception e) {
+					deliverError(generation, e, false, true);
+				}
+			}
+		}, generation, false, true);
+	}
+
+	private Page<Key, T> load(PageRecord<Key> record) throws Exception {
+		switch (record.mType) {
+			case LOAD_AFTER:
+				return mDataSource.loadAfter(record.mRequestKey, mPageSize);
+			case LOAD_BEFORE:
+				return ((BidirectionalDataSource<Key, T>) mDataSource).loadBefore(record.mRequestKey, mPageSize);
+			default:
+				return mDataSource.loadInitial(mPageSize);
+		}
+	}
+
+	/**
+	 * 后台线程调用，有缓存的话先交给adapter显示，这个时候还是加载中的状态
+	 */
+	private void readCache(final int generation, final int version) {
+		if (mDiskCache == null) {
+			return;
+		}
+		final List<T> cached = mDiskCache.get(mCacheKey);
+		if (cached == null || cached.isEmpty()) {
+			return;
+		}
+		prepare(cached);
+		mMainHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				if (generation != mGeneration || version != mTailVersion || !mPages.isEmpty()) {
+					return;
+				}
+				mAdapter.setData(cached);
+			}
+		});
+	}
+
+	private void prepare(List<T> data) {
+		PagePreparer<T> pagePreparer = mPagePreparer;
+		if (pagePreparer != null && data != null) {
+			pagePreparer.onPreparePage(data);
+		}
+	}
+
+	private void writeCache(Page<Key, T> page) {
+		if (mDiskCache != null) {
+			mDiskCache.put(mCacheKey, page.getData());
+		}
+	}
+
+	private void execute(Runnable task, int generation, boolean refresh, boolean head) {
+		try {
+			mExecutor.execute(task);
+		} catch (RejectedExecutionException e) {
+			deliverError(generation, e, refresh, head);
+		}
+	}
+
+	private void deliverRefresh(final int generation, final PageRecord<Key> record, final Page<Key, T> page) {
+		mMainHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				if (generation != mGeneration) {
+					return;
+				}
+				// 设置了ItemCallback的时候在后台diff，数据真正交给adapter之后再更新状态
+				mAdapter.submitList(page.getData(), new Runnable() {
+					@Override
+					public void run() {
+						if (generation != mGeneration) {
+							return;
+						}
+						mRefreshing = false;
+						mHeadVersion++;
+						mTailVersion++;
+						mPages.clear();
+						mDroppedHead.clear();
+						record.fill(page);
+						mPages.addLast(record);
+						mRecyclerView.reset();
+						if (!page.hasMore()) {
+							mRecyclerView.completeLoadAll();
+						}
+						updatePreviousState();
+						if (mCallback != null) {
+							mCallback.onRefreshComplete();
+						}
+					}
+				});
+			}
+		});
+	}
+
+	private void deliverAppend(final int generation, final int version, final PageRecord<Key> record, final Page<Key, T> page) {
+		mMainHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				// 开启了LoadRecyclerView.setDeferDeliveryWhileFling()的时候惯性滑动停下来之后再插入
+				mRecyclerView.deliverWhenSettled(new Runnable() {
+					@Override
+					public void run() {
+						if (generation != mGeneration) {
+							return;
+						}
+						if (version != mTailVersion) {
+							// 尾部已经变了，这一页已经接不上了
+							mRecyclerView.completeLoadSingle();
+							return;
+						}
+						record.fill(page);
+						mPages.addLast(record);
+						int loadState = page.hasMore() ? LoadRecyclerView.LOAD_STATE_PREPARE : LoadRecyclerView.LOAD_STATE_COMPLETE_ALL;
+						if (mPages.size() == 1) {
+							// 替换掉显示着的缓存数据
+							mAdapter.setData(page.getData());
+							updatePreviousState();
+						} else {
+							// 插入新的数据和更新load区域在一次通知里面完成，和之前的页重复的项不会加进去
+							record.mSize = mAdapter.appendData(page.getData(), loadState);
+						}
+						trimHead();
+						if (page.hasMore()) {
+							mRecyclerView.completeLoadSingle();
+						} else {
+							mRecyclerView.completeLoadAll();
+						}
+					}
+				});
+			}
+		});
+	}
+
+	private void deliverPrepend(final int generation, final int version, final PageRecord<Key> record, final Page<Key, T> page) {
+		mMainHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				if (generation != mGeneration) {
+					return;
+				}
+				if (version != mHeadVersion) {
+					mRecyclerView.completeLoadPrevious();
+					return;
+				}
+				if (mDroppedHead.peekFirst() == record) {
+					mDroppedHead.pollFirst();
+				}
+				record.fill(page);
+				mPages.addFirst(record);
+				record.mSize = mAdapter.prependData(page.getData());
+				trimTail();
+				updatePreviousState();
+			}
+		});
+	}
+
+	private void deliverError(final int generation, final Exception e, final boolean refresh, final boolean head) {
+		mMainHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				if (generation != mGeneration) {
+					return;
+				}
+				if (refresh) {
+					mRefreshing = false;
+				}
+				// 失败之后回到可以重新加载的状态
+				if (head) {
+					mRecyclerView.completeLoadPrevious();
+				} else {
+					mRecyclerView.completeLoadSingle();
+				}
+				if (mCallback != null) {
+					if (refresh) {
+						mCallback.onRefreshComplete();
+					}
+					mCallback.onLoadFailed(e);
+				}
+			}
+		});
+	}
+
+	private void restorePages(List<PageRecord<Key>> pages, List<PageRecord<Key>> dropped, List<T> data,
+							  final int anchorPosition, final int anchorOffset) {
+		mGeneration++;
+		mHeadVersion++;
+		mTailVersion++;
+		mRefreshing = false;
+		mPages.clear();
+		mPages.addAll(pages);
+		mDroppedHead.clear();
+		mDroppedHead.addAll(dropped);
+		mAdapter.setData(data);
+		mRecyclerView.reset();
+		PageRecord<Key> last = mPages.peekLast();
+		if (last != null && !last.mHasMore) {
+			mRecyclerView.completeLoadAll();
+		}
+		updatePreviousState();
+		// 等RecyclerView自己的状态恢复完了之后再滑动到保存的位置
+		mRecyclerView.post(new Runnable() {
+			@Override
+			public void run() {
+				mRecyclerView.scrollToPositionWithOffset(anchorPosition, anchorOffset);
+			}
+		});
+	}
+
+	/**
+	 * 每一页单独序列化，从锚点所在的页开始往两边扩展，直到超过大小限制
+	 * 锚点之前没有保存的页当作已经丢掉的页，只保存请求，之后的页直接丢掉
+	 */
+	private Bundle createSnapshot(int anchorPosition, int anchorOffset) {
+		List<PageRecord<Key>> pages = new ArrayList<>(mPages);
+		List<T> data = mAdapter.getData();
+		int[] starts = new int[pages.size() + 1];
+		int anchorPage = 0;
+		for (int index = 0; index < pages.size(); index++) {
+			starts[index + 1] = starts[index] + pages.get(index).mSize;
+			if (anchorPosition >= starts[index + 1]) {
+				anchorPage = index + 1;
+			}
+		}
+		anchorPage = Math.min(anchorPage, pages.size() - 1);
+		byte[][] parcels = new byte[pages.size()][];
+		int total = 0;
+		int first = anchorPage;
+		int last = anchorPage - 1;
+		boolean headOpen = true;
+		boolean tailOpen = true;
+		try {
+			while (headOpen || tailOpen) {
+				if (tailOpen) {
+					int index = last + 1;
+					byte[] parcel = index < pages.size() ? marshallPage(pages.get(index), data, starts[index]) : null;
+					tailOpen = parcel != null && total + parcel.length <= mMaxSnapshotSize;
+					if (tailOpen) {
+						parcels[index] = parcel;
+						total += parcel.length;
+						last = index;
+					}
+				}
+				if (last < first) {
+					// 锚点所在的页都保存不下
+					return null;
+				}
+				if (headOpen) {
+					int index = first - 1;
+					byte[] parcel = index >= 0 ? marshallPage(pages.get(index), data, starts[index]) : null;
+					headOpen = parcel != null && total + parcel.length <= mMaxSnapshotSize;
+					if (headOpen) {
+						parcels[index] = parcel;
+						total += parcel.length;
+						first = index;
+					}
+				}
+			}
+			List<PageRecord<Key>> dropped = new ArrayList<>();
+			for (int index = first - 1; index >= 0; index--) {
+				dropped.add(pages.get(index));
+			}
+			dropped.addAll(mDroppedHead);
+			Bundle snapshot = new Bundle();
+			snapshot.putInt(KEY_PAGE_COUNT, last - first + 1);
+			for (int index = first; index <= last; index++) {
+				snapshot.putByteArray(KEY_PAGE + (index - first), parcels[index]);
+			}
+			snapshot.putByteArray(KEY_DROPPED, marshallRequests(dropped));
+			snapshot.putInt(KEY_ANCHOR_POSITION, anchorPosition - starts[first]);
+			snapshot.putInt(KEY_ANCHOR_OFFSET, anchorOffset);
+			return snapshot;
+		} catch (RuntimeException e) {
+			// key或者数据不能放到Parcel里面，不保存
+			return null;
+		}
+	}
+
+	private byte[] marshallPage(PageRecord<Key> record, List<T> data, int start) {
+		Parcel parcel = Parcel.obtain();
+		try {
+			parcel.writeInt(record.mType);
+			parcel.writeValue(record.mRequestKey);
+			parcel.writeValue(record.mPrevKey);
+			parcel.writeValue(record.mNextKey);
+			parcel.writeInt(record.mHasPrevious ? 1 : 0);
+			parcel.writeInt(record.mHasMore ? 1 : 0);
+			parcel.writeInt(record.mSize);
+			for (int index = start; index < start + record.mSize; index++) {
+				parcel.writeValue(data.get(index));
+			}
+			return parcel.marshall();
+		} finally {
+			parcel.recycle();
+		}
+	}
+
+	private byte[] marshallRequests(List<PageRecord<Key>> records) {
+		Parcel parcel = Parcel.obtain();
+		try {
+			parcel.writeInt(records.size());
+			for (PageRecord<Key> record : records) {
+				parcel.writeInt(record.mType);
+				parcel.writeValue(record.mRequestKey);
+			}
+			return parcel.marshall();
+		} finally {
+			parcel.recycle();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private boolean restoreSnapshot(Bundle snapshot) {
+		ClassLoader classLoader = mAdapter.getClass().getClassLoader();
+		List<PageRecord<Key>> pages = new ArrayList<>();
+		List<PageRecord<Key>> dropped = new ArrayList<>();
+		List<T> data = new ArrayList<>();
+		Parcel parcel = Parcel.obtain();
+		try {
+			int pageCount = snapshot.getInt(KEY_PAGE_COUNT);
+			for (int page = 0; page < pageCount; page++) {
+				byte[] bytes = snapshot.getByteArray(KEY_PAGE + page);
+				parcel.unmarshall(bytes, 0, bytes.length);
+				parcel.setDataPosition(0);
+				PageRecord<Key> record = new PageRecord<>(parcel.readInt(), (Key) parcel.readValue(classLoader));
+				record.mPrevKey = (Key) parcel.readValue(classLoader);
+				record.mNextKey = (Key) parcel.readValue(classLoader);
+				record.mHasPrevious = parcel.readInt() != 0;
+				record.mHasMore = parcel.readInt() != 0;
+				record.mSize = parcel.readInt();
+				for (int index = 0; index < record.mSize; index++) {
+					data.add((T) parcel.readValue(classLoader));
+				}
+				pages.add(record);
+			}
+			byte[] bytes = snapshot.getByteArray(KEY_DROPPED);
+			parcel.unmarshall(bytes, 0, bytes.length);
+			parcel.setDataPosition(0);
+			int droppedCount = parcel.readInt();
+			for (int index = 0; index < droppedCount; index++) {
+				dropped.add(new PageRecord<>(parcel.readInt(), (Key) parcel.readValue(classLoader)));
+			}
+		} catch (RuntimeException e) {
+			return false;
+		} finally {
+			parcel.recycle();
+		}
+		if (pages.isEmpty()) {
+			return false;
+		}
+		restorePages(pages, dropped, data, snapshot.getInt(KEY_ANCHOR_POSITION), snapshot.getInt(KEY_ANCHOR_OFFSET));
+		return true;
+	}
+
+	private void updatePreviousState() {
+		PageRecord<Key> first = mPages.peekFirst();
+		if (!mDroppedHead.isEmpty() ||
+			(first != null && first.mHasPrevious && mDataSource instanceof BidirectionalDataSource)) {
+			mRecyclerView.completeLoadPrevious();
+		} else {
+			mRecyclerView.completeLoadPreviousAll();
+		}
+	}
+
+	/**
+	 * 往后加载之后丢掉最前面的页
+	 */
+	private void trimHead() {
+		if (mMaxPages == 0 || mPages.size() <= mMaxPages) {
+			return;
+		}
+		while (mPages.size() > mMaxPages) {
+			PageRecord<Key> record = mPages.pollFirst();
+			mAdapter.removeRange(0, record.mSize);
+			mDroppedHead.addFirst(record);
+		}
+		mHeadVersion++;
+		mRecyclerView.completeLoadPrevious();
+	}
+
+	/**
+	 * 往前加载之后丢掉最后面的页，之后按最后一页的nextKey重新往后加载
+	 */
+	private void trimTail() {
+		if (mMaxPages == 0 || mPages.size() <= mMaxPages) {
+			return;
+		}
+		while (mPages.size() > mMaxPages) {
+			PageRecord<Key> record = mPages.pollLast();
+			mAdapter.removeRange(mAdapter.onItemCount() - record.mSize, record.mSize);
+		}
+		mTailVersion++;
+		mRecyclerView.reset();
+	}
+
+	/**
+	 * 一页对应的请求以及请求回来之后的游标，数据本身放在adapter里面
+	 */
+	private static class PageRecord<Key> {
+
+		final int mType;
+		final Key mRequestKey;
+		int       mSize;
+		Key       mPrevKey;
+		Key       mNextKey;
+		boolean   mHasPrevious;
+		boolean   mHasMore;
+
+		PageRecord(int type, Key requestKey) {
+			mType = type;
+			mRequestKey = requestKey;
+		}
+
+		void fill(Page<Key, ?> page) {
+			mSize = page.getData().size();
+			mPrevKey = page.getPrevKey();
+			mNextKey = page.getNextKey();
+			mHasPrevious = page.hasPrevious();
+			mHasMore = page.hasMore();
+		}
+	}
+
+	/**
+	 * 屏幕旋转的时候保存在PagingRetainFragment里面的状态
+	 */
+	private static class RetainedState<Key, T> {
+
+		final List<PageRecord<Key>> mPages;
+		final List<PageRecord<Key>> mDropped;
+		final List<T>               mData;
+		final int                   mAnchorPosition;
+		final int                   mAnchorOffset;
+
+		RetainedState(List<PageRecord<Key>> pages, List<PageRecord<Key>> dropped, List<T> data, int anchorPosition,
+					  int anchorOffset) {
+			mPages = pages;
+			mDropped = dropped;
+			mData = data;
+			mAnchorPosition = anchorPosition;
+			mAnchorOffset = anchorOffset;
+		}
+	}
+
+	private static class LoaderThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger mCount = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "PagedLoader #" + mCount.incrementAndGet());
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package com.tuacy.refreshloadlib.paging;
+
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentActivity;
+import android.support.v4.app.FragmentManager;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 没有界面的Fragment，setRetainInstance(true)之后屏幕旋转的时候不会被销毁，用来保存已经加载的数据
+ */
+public class PagingRetainFragment extends Fragment {
+
+	private static final String FRAGMENT_TAG = "com.tuacy.refreshloadlib.paging.PagingRetainFragment";
+
+	private final Map<String, Object> mStates = new HashMap<>();
+
+	public static PagingRetainFragment obtain(FragmentActivity activity) {
+		FragmentManager manager = activity.getSupportFragmentManager();
+		PagingRetainFragment fragment = (PagingRetainFragment) manager.findFragmentByTag(FRAGMENT_TAG);
+		if (fragment == null) {
+			fragment = new PagingRetainFragment();
+			manager.beginTransaction().add(fragment, FRAGMENT_TAG).commitAllowingStateLoss();
+			manager.executePendingTransactions();
+		}
+		return fragment;
+	}
+
+	@Override
+	public void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		setRetainInstance(true);
+	}
+
+	void put(String tag, Object state) {
+		mStates.put(tag, state);
+	}
+
+	/**
+	 * 取出来之后就删掉，只用一次
+	 */
+	Object take(String tag) {
+		return mStates.remove(tag);
+	}
+}
@@ -0,0 +1,53 @@
+package com.tuacy.refreshloadlib.paging;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * 大小固定为总数的列表，按页保存已经加载的数据，没有加载的位置返回null
+ * 只在主线程里面读写
+ */
+public class PlaceholderList<T> extends AbstractList<T> {
+
+	private final int       mSize;
+	private final int       mPageSize;
+	private final List<T>[] mPages;
+
+	@SuppressWarnings("unchecked")
+	public PlaceholderList(int size, int pageSize) {
+		mSize = size;
+		mPageSize = pageSize;
+		mPages = new List[(size + pageSize - 1) / pageSize];
+	}
+
+	@Override
+	public T get(int index) {
+		if (index < 0 || index >= mSize) {
+			throw new IndexOutOfBoundsException("index: " + index + ", size: " + mSize);
+		}
+		List<T> page = mPages[index / mPageSize];
+		int offset = index % mPageSize;
+		return page == null || offset >= page.size() ? null : page.get(offset);
+	}
+
+	@Override
+	public int size() {
+		return mSize;
+	}
+
+	public int getPageSize() {
+		return mPageSize;
+	}
+
+	public int getPageCount() {
+		return mPages.length;
+	}
+
+	public boolean isPageLoaded(int pageIndex) {
+		return mPages[pageIndex] != null;
+	}
+
+	public void setPage(int pageIndex, List<T> page) {
+		mPages[pageIndex] = page;
+	}
+}
@@ -0,0 +1,16 @@
+package com.tuacy.refreshloadlib.paging;
+
+import java.util.List;
+
+/**
+ * 知道总数的数据源，可以按位置随机加载任意一段，在后台线程中调用
+ */
+public interface PositionalDataSource<T> {
+
+	int loadTotalCount() throws Exception;
+
+	/**
+	 * 加载[start, start + count)这一段
+	 */
+	List<T> loadRange(int start, int count) throws Exception;
+}
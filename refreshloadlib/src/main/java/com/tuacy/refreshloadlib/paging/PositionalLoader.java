@@ -0,0 +1,283 @@
+package com.tuacy.refreshloadlib.paging;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+
+import com.tuacy.refreshloadlib.adapter.LoadRecyclerBaseAdapter;
+import com.tuacy.refreshloadlib.adapter.LoadRecyclerListAdapter;
+import com.tuacy.refreshloadlib.view.LoadRecyclerView;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 总数已知的时候用，一开始就把总数交给adapter，没有加载的位置显示占位，
+ * 占位显示出来的时候再去加载它所在的页，这样滚动条是准确的，scrollToPosition()也可以直接跳到任意位置
+ * 某一页加载失败之后隔一段时间自动重试几次，还是失败的时候回调onLoadFailed()，之后可以调用retry()再试
+ */
+public class PositionalLoader<T> implements LoadRecyclerBaseAdapter.OnPlaceholderBindListener {
+
+	private static final int DEFAULT_PAGE_SIZE = 20;
+	/**
+	 * 同时最多加载几页
+	 */
+	private static final int MAX_IN_FLIGHT     = 2;
+	/**
+	 * 最多排队几页，快速滑动的时候只加载最后划到的那几页
+	 */
+	private static final int MAX_PENDING       = 4;
+	/**
+	 * 加载失败之后自动重试的次数，每次的间隔翻倍
+	 */
+	private static final int MAX_RETRIES       = 3;
+	private static final int RETRY_DELAY_MS    = 1000;
+
+	private final LoadRecyclerView           mRecyclerView;
+	private final LoadRecyclerListAdapter<T> mAdapter;
+	private final PositionalDataSource<T>    mDataSource;
+	private final Handler                    mMainHandler;
+	private final SparseBooleanArray         mInFlight;
+	private final Deque<Integer>             mPending;
+	/**
+	 * 每一页连续失败的次数，成功之后去掉
+	 */
+	private final SparseIntArray             mFailures;
+	/**
+	 * 自动重试也失败了的页，等着retry()
+	 */
+	private final SparseBooleanArray         mFailed;
+	/**
+	 * 等着自动重试的页，这段时间里面占位再绑定也不马上加载
+	 */
+	private final SparseBooleanArray         mRetrying;
+	private       Executor                   mExecutor;
+	private       int                        mPageSize;
+	private       PagedLoader.Callback       mCallback;
+	private       int                        mGeneration;
+	private       PlaceholderList<T>         mList;
+
+	public PositionalLoader(LoadRecyclerView recyclerView, LoadRecyclerListAdapter<T> adapter, PositionalDataSource<T> dataSource) {
+		mRecyclerView = recyclerView;
+		mAdapter = adapter;
+		mDataSource = dataSource;
+		mMainHandler = new Handler(Looper.getMainLooper());
+		mInFlight = new SparseBooleanArray();
+		mPending = new ArrayDeque<>();
+		mFailures = new SparseIntArray();
+		mFailed = new SparseBooleanArray();
+		mRetrying = new SparseBooleanArray();
+		mExecutor = PagedLoader.obtainDefaultExecutor();
+		mPageSize = DEFAULT_PAGE_SIZE;
+		mAdapter.setOnPlaceholderBindListener(this);
+	}
+
+	public void setExecutor(Executor executor) {
+		mExecutor = executor == null ? PagedLoader.obtainDefaultExecutor() : executor;
+	}
+
+	public void setPageSize(int pageSize) {
+		mPageSize = Math.max(1, pageSize);
+	}
+
+	public void setCallback(PagedLoader.Callback callback) {
+		mCallback = callback;
+	}
+
+	/**
+	 * 重新加载总数和第一页
+	 */
+	public void refresh() {
+		final int generation = ++mGeneration;
+		final int pageSize = mPageSize;
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					int total = mDataSource.loadTotalCount();
+					List<T> first = total > 0 ? mDataSource.loadRange(0, Math.min(pageSize, total)) : null;
+					deliverRefresh(generation, total, pageSize, first);
+				} catch (Exception e) {
+					deliverError(generation, e, true, -1);
+				}
+			}
+		}, generation, true, -1);
+	}
+
+	public void release() {
+		mGeneration++;
+		mInFlight.clear();
+		mPending.clear();
+		mFailures.clear();
+		mFailed.clear();
+		mRetrying.clear();
+		mMainHandler.removeCallbacksAndMessages(null);
+	}
+
+	/**
+	 * 重新加载自动重试之后还是失败了的页，比如网络恢复之后或者用户点了重试
+	 */
+	public void retry() {
+		if (mList == null) {
+			return;
+		}
+		for (int index = 0; index < mFailed.size(); index++) {
+			int pageIndex = mFailed.keyAt(index);
+			mFailures.delete(pageIndex);
+			enqueue(pageIndex);
+		}
+		mFailed.clear();
+		schedule();
+	}
+
+	@Override
+	public void onPlaceholderBound(int position) {
+		if (mList == null) {
+			return;
+		}
+		int pageIndex = position / mList.getPageSize();
+		if (mRetrying.get(pageIndex) || mFailed.get(pageIndex)) {
+			// 正在等着自动重试，或者等着retry()
+			return;
+		}
+		enqueue(pageIndex);
+		schedule();
+	}
+
+	private void enqueue(Integer pageIndex) {
+		if (mList.isPageLoaded(pageIndex) || mInFlight.get(pageIndex)) {
+			return;
+		}
+		// 最近划到的页放在最后面，最先加载
+		mPending.remove(pageIndex);
+		mPending.addLast(pageIndex);
+		while (mPending.size() > MAX_PENDING) {
+			mPending.pollFirst();
+		}
+	}
+
+	private void schedule() {
+		while (mInFlight.size() < MAX_IN_FLIGHT && !mPending.isEmpty()) {
+			loadPage(mPending.pollLast());
+		}
+	}
+
+	private void loadPage(final int pageIndex) {
+		final int generation = mGeneration;
+		final int start = pageIndex * mList.getPageSize();
+		final int count = Math.min(mList.getPageSize(), mList.size() - start);
+		mInFlight.put(pageIndex, true);
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					deliverPage(generation, pageIndex, mDataSource.loadRange(start, count));
+				} catch (Exception e) {
+					deliverError(generation, e, false, pageIndex);
+				}
+			}
+		}, generation, false, pageIndex);
+	}
+
+	private void execute(Runnable task, int generation, boolean refresh, int pageIndex) {
+		try {
+			mExecutor.execute(task);
+		} catch (RejectedExecutionException e) {
+			deliverError(generation, e, refresh, pageIndex);
+		}
+	}
+
+	private void deliverRefresh(final int generation, final int total, final int pageSize, final List<T> first) {
+		mMainHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				if (generation != mGeneration) {
+					return;
+				}
+				mInFlight.clear();
+				mPending.clear();
+				mFailures.clear();
+				mFailed.clear();
+				mRetrying.clear();
+				mList = new PlaceholderList<>(total, pageSize);
+				if (first != null) {
+					mList.setPage(0, first);
+				}
+				mAdapter.setPlaceholderData(mList);
+				// 总数已经知道了，不需要再往后加载
+				mRecyclerView.reset();
+				mRecyclerView.completeLoadAll();
+				if (mCallback != null) {
+					mCallback.onRefreshComplete();
+				}
+			}
+		});
+	}
+
+	private void deliverPage(final int generation, final int pageIndex, final List<T> data) {
+		mMainHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				if (generation != mGeneration) {
+					return;
+				}
+				mInFlight.delete(pageIndex);
+				mFailures.delete(pageIndex);
+				if (data != null && !data.isEmpty()) {
+					mList.setPage(pageIndex, data);
+					mAdapter.notifyPlaceholdersLoaded(pageIndex * mList.getPageSize(), data.size());
+				}
+				schedule();
+			}
+		});
+	}
+
+	private void scheduleRetry(final int generation, final int pageIndex, long delay) {
+		mRetrying.put(pageIndex, true);
+		mMainHandler.postDelayed(new Runnable() {
+			@Override
+			public void run() {
+				if (generation != mGeneration) {
+					return;
+				}
+				mRetrying.delete(pageIndex);
+				enqueue(pageIndex);
+				schedule();
+			}
+		}, delay);
+	}
+
+	private void deliverError(final int generation, final Exception e, final boolean refresh, final int pageIndex) {
+		mMainHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				if (generation != mGeneration) {
+					return;
+				}
+				if (pageIndex >= 0) {
+					mInFlight.delete(pageIndex);
+					int failures = mFailures.get(pageIndex) + 1;
+					mFailures.put(pageIndex, failures);
+					if (failures <= MAX_RETRIES) {
+						// 占位可能一直在屏幕上，不会再绑定，不能等它再显示出来才重新加载
+						scheduleRetry(generation, pageIndex, RETRY_DELAY_MS << (failures - 1));
+						schedule();
+						return;
+					}
+					mFailed.put(pageIndex, true);
+					schedule();
+				}
+				if (mCallback != null) {
+					if (refresh) {
+						mCallback.onRefreshComplete();
+					}
+					mCallback.onLoadFailed(e);
+				}
+			}
+		});
+	}
+}
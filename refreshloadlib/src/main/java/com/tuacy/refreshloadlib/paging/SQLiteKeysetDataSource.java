@@ -0,0 +1,245 @@
+package com.tuacy.refreshloadlib.paging;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 从本地的SQLite表里面一页一页的读数据，key是表里面一个有索引的、唯一的INTEGER列(比如_id)
+ * 用WHERE key > ? LIMIT n代替OFFSET，不管翻到多深，每一页都只需要走一次索引
+ * 可以按另外一个会重复的列(比如时间)排序，这个时候按(排序列, key)排序，相同的值之间用key区分，翻页的时候不会漏掉也不会重复
+ * 翻页的游标是上一页边上那一行的(排序列的值, key)，不用再回表里查，那一行被删掉了也能接着往后翻
+ * key和数字类型的排序值直接作为数字写在SQL里面，不当成字符串绑定，key列不是INTEGER的时候比较的结果不对
+ * 每一页多查一条用来判断后面还有没有数据，数据转换完之后马上关闭Cursor释放CursorWindow
+ * 由PagedLoader在后台线程调用
+ */
+public class SQLiteKeysetDataSource<T> implements BidirectionalDataSource<SQLiteKeysetDataSource.Anchor, T> {
+
+	private final SQLiteDatabase mDatabase;
+	private final String         mTable;
+	private final String         mSortColumn;
+	private final String         mKeyColumn;
+	private final String[]       mColumns;
+	private final String         mSelection;
+	private final String[]       mSelectionArgs;
+	private final RowMapper<T>   mRowMapper;
+
+	/**
+	 * 把Cursor当前行转换成一项数据，不要在里面移动Cursor
+	 */
+	public interface RowMapper<T> {
+
+		T map(Cursor cursor);
+	}
+
+	public SQLiteKeysetDataSource(SQLiteDatabase database, String table, String keyColumn, String[] columns,
+								  RowMapper<T> rowMapper) {
+		this(database, table, keyColumn, columns, null, null, rowMapper);
+	}
+
+	/**
+	 * @param selection 额外的过滤条件，会和key的条件用AND连起来，可以为null
+	 */
+	public SQLiteKeysetDataSource(SQLiteDatabase database, String table, String keyColumn, String[] columns,
+								  String selection, String[] selectionArgs, RowMapper<T> rowMapper) {
+		this(database, table, null, keyColumn, columns, selection, selectionArgs, rowMapper);
+	}
+
+	/**
+	 * @param sortColumn 按这一列排序，值可以重复，但是不能是NULL，最好和keyColumn一起建索引，为null的时候按keyColumn排序
+	 * @param selection  额外的过滤条件，会和key的条件用AND连起来，可以为null
+	 */
+	public SQLiteKeysetDataSource(SQLiteDatabase database, String table, String sortColumn, String keyColumn,
+								  String[] columns, String selection, String[] selectionArgs, RowMapper<T> rowMapper) {
+		mDatabase = database;
+		mTable = table;
+		mSortColumn = sortColumn;
+		mKeyColumn = keyColumn;
+		mColumns = withColumn(withColumn(columns, keyColumn), sortColumn);
+		mSelection = selection;
+		mSelectionArgs = selectionArgs == null ? new String[0] : selectionArgs;
+		mRowMapper = rowMapper;
+	}
+
+	@Override
+	public Page<Anchor, T> loadInitial(int pageSize) throws Exception {
+		Rows<T> rows = query(null, null, " ASC", pageSize);
+		return new Page<>(rows.mData, rows.mFirstKey, rows.mLastKey, false, rows.mHasMore);
+	}
+
+	@Override
+	public Page<Anchor, T> loadAfter(Anchor key, int pageSize) throws Exception {
+		Rows<T> rows = query(" > ", key, " ASC", pageSize);
+		return new Page<>(rows.mData, rows.mFirstKey, rows.mLastKey, true, rows.mHasMore);
+	}
+
+	@Override
+	public Page<Anchor, T> loadBefore(Anchor key, int pageSize) throws Exception {
+		// 倒着查离key最近的那些行，再翻转成正序
+		Rows<T> rows = query(" < ", key, " DESC", pageSize);
+		Collections.reverse(rows.mData);
+		return new Page<>(rows.mData, rows.mLastKey, rows.mFirstKey, rows.mHasMore, true);
+	}
+
+	/**
+	 * @return mFirstKey和mLastKey是按查询的顺序的第一行和最后一行
+	 */
+	private Rows<T> query(String keyOperator, Anchor key, String order, int pageSize) {
+		StringBuilder selection = new StringBuilder();
+		List<String> args = new ArrayList<>(mSelectionArgs.length + 2);
+		Collections.addAll(args, mSelectionArgs);
+		if (mSelection != null) {
+			selection.append('(').append(mSelection).append(')');
+		}
+		if (keyOperator != null && key != null) {
+			if (selection.length() > 0) {
+				selection.append(" AND ");
+			}
+			appendKeyCondition(selection, args, keyOperator, key);
+		}
+		String orderBy = mSortColumn == null ? mKeyColumn + order : mSortColumn + order + ", " + mKeyColumn + order;
+		Cursor cursor = mDatabase.query(mTable, mColumns, selection.length() == 0 ? null : selection.toString(),
+										args.toArray(new String[args.size()]), null, null, orderBy,
+										String.valueOf(pageSize + 1));
+		Rows<T> rows = new Rows<>(pageSize);
+		try {
+			int keyIndex = cursor.getColumnIndexOrThrow(mKeyColumn);
+			int sortIndex = mSortColumn == null ? -1 : cursor.getColumnIndexOrThrow(mSortColumn);
+			while (rows.mData.size() < pageSize && cursor.moveToNext()) {
+				Anchor anchor = new Anchor(sortIndex < 0 ? null : readSortValue(cursor, sortIndex), cursor.getLong(keyIndex));
+				if (rows.mFirstKey == null) {
+					rows.mFirstKey = anchor;
+				}
+				rows.mLastKey = anchor;
+				rows.mData.add(mRowMapper.map(cursor));
+			}
+			rows.mHasMore = cursor.getCount() > pageSize;
+		} finally {
+			cursor.close();
+		}
+		return rows;
+	}
+
+	/**
+	 * 有排序列的时候: sort > 上一页最后一行的sort，或者sort相等并且key > 上一页最后一行的key
+	 * 直接和游标里面记下来的值比较，那一行后来被删掉了也不影响
+	 */
+	private void appendKeyCondition(StringBuilder selection, List<String> args, String keyOperator, Anchor key) {
+		if (mSortColumn == null) {
+			selection.append(mKeyColumn).append(keyOperator).append(key.mKey);
+			return;
+		}
+		selection.append("(").append(mSortColumn).append(keyOperator);
+		appendSortValue(selection, args, key.mSortValue);
+		selection.append(" OR (").append(mSortColumn).append(" = ");
+		appendSortValue(selection, args, key.mSortValue);
+		selection.append(" AND ").append(mKeyColumn).append(keyOperator).append(key.mKey).append("))");
+	}
+
+	/**
+	 * 数字直接写成数字，字符串用?绑定
+	 */
+	private static void appendSortValue(StringBuilder selection, List<String> args, Object value) {
+		if (value instanceof Long) {
+			selection.append(value);
+		} else if (value instanceof Double) {
+			double number = (Double) value;
+			// SQLite没有Infinity这个字面量，超出范围的数字会被当成无穷大
+			selection.append(Double.isInfinite(number) ? (number > 0 ? "9e999" : "-9e999") : Double.toString(number));
+		} else {
+			selection.append('?');
+			args.add((String) value);
+		}
+	}
+
+	private static Object readSortValue(Cursor cursor, int index) {
+		switch (cursor.getType(index)) {
+			case Cursor.FIELD_TYPE_INTEGER:
+				return cursor.getLong(index);
+			case Cursor.FIELD_TYPE_FLOAT:
+				return cursor.getDouble(index);
+			case Cursor.FIELD_TYPE_STRING:
+				return cursor.getString(index);
+			default:
+				throw new IllegalStateException("sort column must not be NULL or BLOB");
+		}
+	}
+
+	private static String[] withColumn(String[] columns, String extraColumn) {
+		if (columns == null || extraColumn == null) {
+			// null表示所有的列，已经包含了
+			return columns;
+		}
+		for (String column : columns) {
+			if (extraColumn.equals(column)) {
+				return columns;
+			}
+		}
+		String[] result = new String[columns.length + 1];
+		System.arraycopy(columns, 0, result, 0, columns.length);
+		result[columns.length] = extraColumn;
+		return result;
+	}
+
+	/**
+	 * 翻页的游标，一页边上那一行的排序值和key，PagedLoader保存状态的时候会写到Parcel里面
+	 */
+	public static final class Anchor implements Parcelable {
+
+		/**
+		 * 没有排序列的时候是null，否则是Long、Double或者String
+		 */
+		final Object mSortValue;
+		final long   mKey;
+
+		Anchor(Object sortValue, long key) {
+			mSortValue = sortValue;
+			mKey = key;
+		}
+
+		public long getKey() {
+			return mKey;
+		}
+
+		@Override
+		public int describeContents() {
+			return 0;
+		}
+
+		@Override
+		public void writeToParcel(Parcel dest, int flags) {
+			dest.writeValue(mSortValue);
+			dest.writeLong(mKey);
+		}
+
+		public static final Parcelable.Creator<Anchor> CREATOR = new Parcelable.Creator<Anchor>() {
+			@Override
+			public Anchor createFromParcel(Parcel source) {
+				Object sortValue = source.readValue(Anchor.class.getClassLoader());
+				return new Anchor(sortValue, source.readLong());
+			}
+
+			@Override
+			public Anchor[] newArray(int size) {
+				return new Anchor[size];
+			}
+		};
+	}
+
+	private static class Rows<T> {
+
+		final List<T> mData;
+		Anchor        mFirstKey;
+		Anchor        mLastKey;
+		boolean       mHasMore;
+
+		Rows(int pageSize) {
+			mData = new ArrayList<>(pageSize);
+		}
+	}
+}
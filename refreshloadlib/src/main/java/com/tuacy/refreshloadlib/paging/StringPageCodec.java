@@ -0,0 +1,21 @@
+package com.tuacy.refreshloadlib.paging;
+
+import java.nio.charset.Charset;
+
+/**
+ * String按UTF-8保存
+ */
+public class StringPageCodec implements PageCodec<String> {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	@Override
+	public byte[] encode(String item) {
+		return item.getBytes(UTF_8);
+	}
+
+	@Override
+	public String decode(byte[] bytes) {
+		return new String(bytes, UTF_8);
+	}
+}
@@ -0,0 +1,134 @@
+package com.tuacy.refreshloadlib.utils;
+
+import java.util.Arrays;
+
+/**
+ * long到int的哈希表，key和value都是基本类型，不会装箱，开放地址法(线性探测)
+ * 查找、插入、删除都是O(1)，不是线程安全的
+ */
+public class LongIntHashMap {
+
+	private static final int   DEFAULT_CAPACITY = 16;
+	private static final float LOAD_FACTOR      = 0.5f;
+
+	private long[]    mKeys;
+	private int[]     mValues;
+	private boolean[] mUsed;
+	private int       mSize;
+	private int       mThreshold;
+
+	public LongIntHashMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public LongIntHashMap(int expectedSize) {
+		allocate(capacityFor(expectedSize));
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	public boolean containsKey(long key) {
+		return mUsed[indexOf(key)];
+	}
+
+	/**
+	 * @return 没有这个key的时候返回defaultValue
+	 */
+	public int get(long key, int defaultValue) {
+		int index = indexOf(key);
+		return mUsed[index] ? mValues[index] : defaultValue;
+	}
+
+	public void put(long key, int value) {
+		int index = indexOf(key);
+		if (mUsed[index]) {
+			mValues[index] = value;
+			return;
+		}
+		mKeys[index] = key;
+		mValues[index] = value;
+		mUsed[index] = true;
+		if (++mSize > mThreshold) {
+			rehash(mKeys.length * 2);
+		}
+	}
+
+	/**
+	 * 删除之后把后面同一串里面的key往前挪，不留删除标记
+	 */
+	public void remove(long key) {
+		int index = indexOf(key);
+		if (!mUsed[index]) {
+			return;
+		}
+		int mask = mKeys.length - 1;
+		int hole = index;
+		int next = (hole + 1) & mask;
+		while (mUsed[next]) {
+			int home = hash(mKeys[next]) & mask;
+			// home不在(hole, next]之间的时候可以挪到hole
+			if (hole <= next ? (home <= hole || home > next) : (home <= hole && home > next)) {
+				mKeys[hole] = mKeys[next];
+				mValues[hole] = mValues[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		mUsed[hole] = false;
+		mSize--;
+	}
+
+	public void clear() {
+		Arrays.fill(mUsed, false);
+		mSize = 0;
+	}
+
+	/**
+	 * @return key所在的位置，没有的时候是应该插入的空位
+	 */
+	private int indexOf(long key) {
+		int mask = mKeys.length - 1;
+		int index = hash(key) & mask;
+		while (mUsed[index] && mKeys[index] != key) {
+			index = (index + 1) & mask;
+		}
+		return index;
+	}
+
+	private void rehash(int capacity) {
+		long[] keys = mKeys;
+		int[] values = mValues;
+		boolean[] used = mUsed;
+		allocate(capacity);
+		for (int index = 0; index < keys.length; index++) {
+			if (used[index]) {
+				int target = indexOf(keys[index]);
+				mKeys[target] = keys[index];
+				mValues[target] = values[index];
+				mUsed[target] = true;
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		mKeys = new long[capacity];
+		mValues = new int[capacity];
+		mUsed = new boolean[capacity];
+		mThreshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	private static int capacityFor(int expectedSize) {
+		int capacity = DEFAULT_CAPACITY;
+		while (capacity * LOAD_FACTOR < expectedSize) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private static int hash(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32));
+	}
+}
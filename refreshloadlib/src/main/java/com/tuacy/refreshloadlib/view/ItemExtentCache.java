@@ -0,0 +1,320 @@
+package com.tuacy.refreshloadlib.view;
+
+import android.support.v7.widget.RecyclerView;
+
+import com.tuacy.refreshloadlib.utils.LongIntHashMap;
+
+import java.util.Arrays;
+
+/**
+ * 记录每个位置的item测量过的高度(横向的时候是宽度)，没有测量过的按已经测量过的平均值估算
+ * 用两个树状数组(Fenwick tree)分别保存前面已经测量过的高度之和和个数，位置和偏移之间的互相转换都是O(log n)
+ * 平均值变了之后没有测量过的部分不用更新，树只需要在位置变化之后从变化的地方往后重新建
+ * adapter开启了stable id的时候notifyDataSetChanged()之后按id找回原来测量过的高度
+ */
+final class ItemExtentCache {
+
+	private static final int UNMEASURED       = -1;
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * 每个位置测量过的高度，没有测量过的是UNMEASURED
+	 */
+	private int[]                mExtents;
+	/**
+	 * 每个位置的id，adapter没有开启stable id的时候不用
+	 */
+	private long[]               mIds;
+	/**
+	 * 下标从1开始，mSumTree[i]是(i - lowbit(i), i]这一段里面测量过的高度之和，mCountTree[i]是个数
+	 */
+	private long[]               mSumTree;
+	private int[]                mCountTree;
+	private int                  mSize;
+	/**
+	 * 前面mTreeSize个位置的树是对的，位置变化之后从变化的地方往后在下一次查询的时候重新建
+	 */
+	private int                  mTreeSize;
+	private long                 mMeasuredSum;
+	private int                  mMeasuredCount;
+	/**
+	 * 一个都没有测量过的时候的估算值
+	 */
+	private int                  mDefaultExtent;
+	private RecyclerView.Adapter mAdapter;
+
+	private final RecyclerView.AdapterDataObserver mObserver = new RecyclerView.AdapterDataObserver() {
+		@Override
+		public void onChanged() {
+			reload();
+		}
+
+		@Override
+		public void onItemRangeChanged(int positionStart, int itemCount) {
+			invalidate(positionStart, itemCount);
+		}
+
+		@Override
+		public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+			invalidate(positionStart, itemCount);
+		}
+
+		@Override
+		public void onItemRangeInserted(int positionStart, int itemCount) {
+			insert(positionStart, itemCount);
+		}
+
+		@Override
+		public void onItemRangeRemoved(int positionStart, int itemCount) {
+			remove(positionStart, itemCount);
+		}
+
+		@Override
+		public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+			move(fromPosition, toPosition, itemCount);
+		}
+	};
+
+	ItemExtentCache(int defaultExtent) {
+		mDefaultExtent = Math.max(1, defaultExtent);
+		mExtents = new int[DEFAULT_CAPACITY];
+		mSumTree = new long[DEFAULT_CAPACITY + 1];
+		mCountTree = new int[DEFAULT_CAPACITY + 1];
+	}
+
+	void setAdapter(RecyclerView.Adapter adapter) {
+		if (mAdapter != null) {
+			mAdapter.unregisterAdapterDataObserver(mObserver);
+		}
+		mAdapter = adapter;
+		if (mAdapter != null) {
+			mAdapter.registerAdapterDataObserver(mObserver);
+		}
+		mIds = null;
+		reload();
+	}
+
+	int size() {
+		return mSize;
+	}
+
+	/**
+	 * 布局之后调用，记录position位置的item的高度
+	 */
+	void set(int position, int extent) {
+		if (position < 0 || position >= mSize || extent < 0) {
+			return;
+		}
+		int old = mExtents[position];
+		if (old == extent) {
+			return;
+		}
+		mExtents[position] = extent;
+		long sumDelta = extent - (old == UNMEASURED ? 0 : old);
+		int countDelta = old == UNMEASURED ? 1 : 0;
+		mMeasuredSum += sumDelta;
+		mMeasuredCount += countDelta;
+		if (position < mTreeSize) {
+			for (int index = position + 1; index <= mTreeSize; index += index & -index) {
+				mSumTree[index] += sumDelta;
+				mCountTree[index] += countDelta;
+			}
+		}
+	}
+
+	/**
+	 * 没有测量过的item的估算高度
+	 */
+	int estimate() {
+		return mMeasuredCount == 0 ? mDefaultExtent : (int) (mMeasuredSum / mMeasuredCount);
+	}
+
+	/**
+	 * @return position前面所有item的高度之和，即position这一项顶部的偏移
+	 */
+	long offsetOf(int position) {
+		ensureTree();
+		int count = Math.max(0, Math.min(position, mSize));
+		long sum = 0;
+		int measured = 0;
+		for (int index = count; index > 0; index -= index & -index) {
+			sum += mSumTree[index];
+			measured += mCountTree[index];
+		}
+		return sum + (long) (count - measured) * estimate();
+	}
+
+	/**
+	 * 所有item的高度之和
+	 */
+	long total() {
+		return offsetOf(mSize);
+	}
+
+	/**
+	 * @return offset所在的那一项的位置，没有数据的时候返回RecyclerView.NO_POSITION
+	 */
+	int positionAt(long offset) {
+		if (mSize == 0) {
+			return RecyclerView.NO_POSITION;
+		}
+		ensureTree();
+		int estimate = estimate();
+		int position = 0;
+		long remaining = offset;
+		// 沿着树往下找，前面position项的高度之和不超过offset
+		for (int step = Integer.highestOneBit(mSize); step > 0; step >>= 1) {
+			int next = position + step;
+			if (next <= mSize) {
+				long extent = mSumTree[next] + (long) (step - mCountTree[next]) * estimate;
+				if (extent <= remaining) {
+					position = next;
+					remaining -= extent;
+				}
+			}
+		}
+		return Math.min(position, mSize - 1);
+	}
+
+	/**
+	 * 树在查询的时候才补齐，数据连续变化的时候只建一次
+	 */
+	private void ensureTree() {
+		while (mTreeSize < mSize) {
+			int index = ++mTreeSize;
+			int extent = mExtents[index - 1];
+			long sum = extent == UNMEASURED ? 0 : extent;
+			int count = extent == UNMEASURED ? 0 : 1;
+			// 这个节点管的(index - lowbit(index), index - 1]这一段由前面的几个节点拼起来
+			for (int child = index - 1, stop = index - (index & -index); child > stop; child -= child & -child) {
+				sum += mSumTree[child];
+				count += mCountTree[child];
+			}
+			mSumTree[index] = sum;
+			mCountTree[index] = count;
+		}
+	}
+
+	private void reload() {
+		int size = mAdapter == null ? 0 : mAdapter.getItemCount();
+		boolean stableIds = mAdapter != null && mAdapter.hasStableIds();
+		LongIntHashMap measured = null;
+		if (stableIds && mIds != null) {
+			// 整个刷新之后位置都不可靠了，只能按id找回原来的高度
+			measured = new LongIntHashMap(mMeasuredCount);
+			for (int position = 0; position < mSize; position++) {
+				if (mExtents[position] != UNMEASURED && mIds[position] != RecyclerView.NO_ID) {
+					measured.put(mIds[position], mExtents[position]);
+				}
+			}
+		}
+		mSize = 0;
+		mTreeSize = 0;
+		mMeasuredSum = 0;
+		mMeasuredCount = 0;
+		ensureCapacity(size);
+		mIds = stableIds ? new long[mExtents.length] : null;
+		Arrays.fill(mExtents, 0, size, UNMEASURED);
+		mSize = size;
+		if (stableIds) {
+			for (int position = 0; position < size; position++) {
+				long id = mAdapter.getItemId(position);
+				mIds[position] = id;
+				if (measured != null && id != RecyclerView.NO_ID) {
+					set(position, measured.get(id, UNMEASURED));
+				}
+			}
+		}
+	}
+
+	/**
+	 * 内容变了，高度可能也变了，重新布局的时候再测量
+	 */
+	private void invalidate(int start, int count) {
+		int end = Math.min(mSize, start + count);
+		for (int position = Math.max(0, start); position < end; position++) {
+			int old = mExtents[position];
+			if (old != UNMEASURED) {
+				mMeasuredSum -= old;
+				mMeasuredCount--;
+				mExtents[position] = UNMEASURED;
+			}
+			if (mIds != null) {
+				mIds[position] = mAdapter.getItemId(position);
+			}
+		}
+		mTreeSize = Math.min(mTreeSize, Math.max(0, start));
+	}
+
+	private void insert(int start, int count) {
+		if (count <= 0 || start < 0 || start > mSize) {
+			return;
+		}
+		ensureCapacity(mSize + count);
+		System.arraycopy(mExtents, start, mExtents, start + count, mSize - start);
+		Arrays.fill(mExtents, start, start + count, UNMEASURED);
+		if (mIds != null) {
+			System.arraycopy(mIds, start, mIds, start + count, mSize - start);
+			for (int position = start; position < start + count; position++) {
+				mIds[position] = mAdapter.getItemId(position);
+			}
+		}
+		mSize += count;
+		// 一般是加在最后的load区域前面，只需要重建后面很少的几个节点
+		mTreeSize = Math.min(mTreeSize, start);
+	}
+
+	private void remove(int start, int count) {
+		if (count <= 0 || start < 0 || start + count > mSize) {
+			return;
+		}
+		for (int position = start; position < start + count; position++) {
+			if (mExtents[position] != UNMEASURED) {
+				mMeasuredSum -= mExtents[position];
+				mMeasuredCount--;
+			}
+		}
+		System.arraycopy(mExtents, start + count, mExtents, start, mSize - start - count);
+		if (mIds != null) {
+			System.arraycopy(mIds, start + count, mIds, start, mSize - start - count);
+		}
+		mSize -= count;
+		mTreeSize = Math.min(mTreeSize, start);
+	}
+
+	private void move(int from, int to, int count) {
+		if (from == to || count <= 0 || from < 0 || to < 0 || Math.max(from, to) + count > mSize) {
+			return;
+		}
+		int[] extents = Arrays.copyOfRange(mExtents, from, from + count);
+		long[] ids = mIds == null ? null : Arrays.copyOfRange(mIds, from, from + count);
+		if (from < to) {
+			System.arraycopy(mExtents, from + count, mExtents, from, to - from);
+		} else {
+			System.arraycopy(mExtents, to, mExtents, to + count, from - to);
+		}
+		System.arraycopy(extents, 0, mExtents, to, count);
+		if (ids != null) {
+			if (from < to) {
+				System.arraycopy(mIds, from + count, mIds, from, to - from);
+			} else {
+				System.arraycopy(mIds, to, mIds, to + count, from - to);
+			}
+			System.arraycopy(ids, 0, mIds, to, count);
+		}
+		mTreeSize = Math.min(mTreeSize, Math.min(from, to));
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= mExtents.length) {
+			return;
+		}
+		int newCapacity = Math.max(capacity, mExtents.length * 2);
+		mExtents = Arrays.copyOf(mExtents, newCapacity);
+		if (mIds != null) {
+			mIds = Arrays.copyOf(mIds, newCapacity);
+		}
+		mSumTree = Arrays.copyOf(mSumTree, newCapacity + 1);
+		mCountTree = Arrays.copyOf(mCountTree, newCapacity + 1);
+	}
+}
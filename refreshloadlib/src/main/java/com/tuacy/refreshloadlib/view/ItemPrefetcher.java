@@ -0,0 +1,233 @@
+package com.tuacy.refreshloadlib.view;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.Display;
+import android.view.View;
+import android.view.WindowManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 滑动的时候利用每一帧剩下的时间，沿着滑动方向提前创建和绑定后面的几个item
+ * 提前准备好的item通过ViewCacheExtension交给RecyclerView，RecyclerView取的时候不用再创建和绑定
+ * 这个版本的RecyclerView自己没有预取，创建和绑定都走Recycler.getViewForPosition()，和RecyclerView自己取的过程一样
+ */
+final class ItemPrefetcher extends RecyclerView.ViewCacheExtension implements Runnable {
+
+	private static final int   DEFAULT_PREFETCH_COUNT = 2;
+	private static final float DEFAULT_REFRESH_RATE   = 60f;
+	private static final float MIN_REFRESH_RATE       = 30f;
+
+	private final RecyclerView                         mRecyclerView;
+	/**
+	 * 位置到提前绑定好的holder
+	 */
+	private final SparseArray<RecyclerView.ViewHolder> mPrefetched;
+	/**
+	 * 每种viewType创建加绑定平均的耗时(微秒)，用来判断这一帧剩下的时间还够不够
+	 */
+	private final SparseIntArray                       mCostsUs;
+	private final long                                 mFrameIntervalNs;
+	private       RecyclerView.Recycler                mRecycler;
+	private       RecyclerView.Adapter                 mAdapter;
+	private       int                                  mPrefetchCount;
+	private       int                                  mDirection;
+	private       boolean                              mPosted;
+	/**
+	 * 数据变了之后到下一次滑动之前，RecyclerView的位置可能还没有更新，不能预取
+	 */
+	private       boolean                              mDataChanged;
+
+	private final RecyclerView.AdapterDataObserver mObserver = new RecyclerView.AdapterDataObserver() {
+		@Override
+		public void onChanged() {
+			onDataChanged();
+		}
+
+		@Override
+		public void onItemRangeChanged(int positionStart, int itemCount) {
+			onDataChanged();
+		}
+
+		@Override
+		public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+			onDataChanged();
+		}
+
+		@Override
+		public void onItemRangeInserted(int positionStart, int itemCount) {
+			onDataChanged();
+		}
+
+		@Override
+		public void onItemRangeRemoved(int positionStart, int itemCount) {
+			onDataChanged();
+		}
+
+		@Override
+		public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+			onDataChanged();
+		}
+	};
+
+	ItemPrefetcher(RecyclerView recyclerView) {
+		mRecyclerView = recyclerView;
+		mPrefetched = new SparseArray<>();
+		mCostsUs = new SparseIntArray();
+		mPrefetchCount = DEFAULT_PREFETCH_COUNT;
+		mFrameIntervalNs = (long) (TimeUnit.SECONDS.toNanos(1) / obtainRefreshRate(recyclerView.getContext()));
+	}
+
+	private static float obtainRefreshRate(Context context) {
+		WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+		Display display = windowManager == null ? null : windowManager.getDefaultDisplay();
+		float refreshRate = display == null ? DEFAULT_REFRESH_RATE : display.getRefreshRate();
+		// 有些设备返回的刷新率不对
+		return refreshRate < MIN_REFRESH_RATE ? DEFAULT_REFRESH_RATE : refreshRate;
+	}
+
+	void setPrefetchCount(int count) {
+		mPrefetchCount = Math.max(1, count);
+	}
+
+	void setAdapter(RecyclerView.Adapter adapter) {
+		if (mAdapter != null) {
+			mAdapter.unregisterAdapterDataObserver(mObserver);
+		}
+		// 旧的holder不能交给新的adapter回收
+		mPrefetched.clear();
+		mCostsUs.clear();
+		mAdapter = adapter;
+		if (mAdapter != null) {
+			mAdapter.registerAdapterDataObserver(mObserver);
+		}
+	}
+
+	/**
+	 * RecyclerView滑动之后调用，这一帧画完之后开始预取
+	 */
+	void onScrolled(int dx, int dy) {
+		RecyclerView.LayoutManager layoutManager = mRecyclerView.getLayoutManager();
+		int delta = layoutManager != null && layoutManager.canScrollHorizontally() ? dx : dy;
+		if (delta == 0) {
+			return;
+		}
+		mDirection = delta > 0 ? 1 : -1;
+		mDataChanged = false;
+		if (!mPosted) {
+			mPosted = true;
+			mRecyclerView.post(this);
+		}
+	}
+
+	/**
+	 * 把提前绑定好的holder都还给RecyclerView
+	 */
+	void clear() {
+		mRecyclerView.removeCallbacks(this);
+		mPosted = false;
+		for (int index = 0; index < mPrefetched.size(); index++) {
+			recycle(mPrefetched.valueAt(index));
+		}
+		mPrefetched.clear();
+	}
+
+	@Override
+	public View getViewForPositionAndType(RecyclerView.Recycler recycler, int position, int type) {
+		mRecycler = recycler;
+		RecyclerView.ViewHolder holder = mPrefetched.get(position);
+		if (holder == null) {
+			return null;
+		}
+		mPrefetched.remove(position);
+		if (holder.getItemViewType() != type) {
+			recycle(holder);
+			return null;
+		}
+		return holder.itemView;
+	}
+
+	@Override
+	public void run() {
+		mPosted = false;
+		if (mRecycler == null || mAdapter == null || mDataChanged || mRecyclerView.isComputingLayout() ||
+			mRecyclerView.getChildCount() == 0) {
+			return;
+		}
+		RecyclerView.ItemAnimator itemAnimator = mRecyclerView.getItemAnimator();
+		if (itemAnimator != null && itemAnimator.isRunning()) {
+			// 动画过程中取的可能是正在消失的item
+			return;
+		}
+		// 这一帧开始绘制的时间加上一帧的时间就是下一帧开始的时间
+		long deadlineNs = TimeUnit.MILLISECONDS.toNanos(mRecyclerView.getDrawingTime()) + mFrameIntervalNs;
+		int first = Integer.MAX_VALUE;
+		int last = RecyclerView.NO_POSITION;
+		for (int index = 0; index < mRecyclerView.getChildCount(); index++) {
+			int position = mRecyclerView.getChildAdapterPosition(mRecyclerView.getChildAt(index));
+			if (position != RecyclerView.NO_POSITION) {
+				first = Math.min(first, position);
+				last = Math.max(last, position);
+			}
+		}
+		if (last == RecyclerView.NO_POSITION) {
+			return;
+		}
+		int start = mDirection > 0 ? last + 1 : first - 1;
+		int end = start + (mPrefetchCount - 1) * mDirection;
+		// 滑动方向变了或者已经滑过去了的不再需要
+		for (int index = mPrefetched.size() - 1; index >= 0; index--) {
+			int position = mPrefetched.keyAt(index);
+			if (position < Math.min(start, end) || position > Math.max(start, end)) {
+				recycle(mPrefetched.valueAt(index));
+				mPrefetched.removeAt(index);
+			}
+		}
+		int itemCount = mAdapter.getItemCount();
+		for (int position = start; position != end + mDirection; position += mDirection) {
+			if (position < 0 || position >= itemCount) {
+				break;
+			}
+			if (mPrefetched.get(position) == null && !prefetch(position, deadlineNs)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * @return 这一帧剩下的时间不够的时候返回false
+	 */
+	private boolean prefetch(int position, long deadlineNs) {
+		int viewType = mAdapter.getItemViewType(position);
+		long startNs = System.nanoTime();
+		if (startNs + TimeUnit.MICROSECONDS.toNanos(mCostsUs.get(viewType)) > deadlineNs) {
+			return false;
+		}
+		View view = mRecycler.getViewForPosition(position);
+		RecyclerView.ViewHolder holder = mRecyclerView.getChildViewHolder(view);
+		int costUs = (int) TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNs);
+		int averageUs = mCostsUs.get(viewType);
+		mCostsUs.put(viewType, averageUs == 0 ? costUs : (averageUs / 4 * 3 + costUs / 4));
+		mPrefetched.put(position, holder);
+		return true;
+	}
+
+	/**
+	 * 直接放回回收池，回收池会把holder的状态全部清掉，数据变了之后也不会被当成还有效的holder用到
+	 */
+	@SuppressWarnings("unchecked")
+	private void recycle(RecyclerView.ViewHolder holder) {
+		if (mAdapter != null) {
+			mAdapter.onViewRecycled(holder);
+		}
+		mRecyclerView.getRecycledViewPool().putRecycledView(holder);
+	}
+
+	private void onDataChanged() {
+		mDataChanged = true;
+		clear();
+	}
+}
@@ -0,0 +1,18 @@
+package com.tuacy.refreshloadlib.view;
+
+import android.support.v7.widget.DefaultItemAnimator;
+import android.support.v7.widget.RecyclerView;
+
+import com.tuacy.refreshloadlib.adapter.LoadRecyclerBaseAdapter;
+
+/**
+ * load区域的状态变化的时候直接用原来的holder局部更新，不再新建一个holder做渐变的动画
+ * 其他的item和DefaultItemAnimator一样
+ */
+public class LoadItemAnimator extends DefaultItemAnimator {
+
+	@Override
+	public boolean canReuseUpdatedViewHolder(RecyclerView.ViewHolder viewHolder) {
+		return LoadRecyclerBaseAdapter.isLoadViewHolder(viewHolder) || super.canReuseUpdatedViewHolder(viewHolder);
+	}
+}
@@ -1,12 +1,23 @@
 package com.tuacy.refreshloadlib.view;
 
 import android.content.Context;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
 import android.support.annotation.Nullable;
+import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
 import android.util.AttributeSet;
+import android.view.View;
+import android.widget.OverScroller;
 
 import com.tuacy.refreshloadlib.adapter.LoadRecyclerBaseAdapter;
+import com.tuacy.refreshloadlib.utils.DensityUtils;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class LoadRecyclerView extends RecyclerView {
 
@@ -15,17 +26,74 @@ public class LoadRecyclerView extends RecyclerView {
 	public static final int LOAD_STATE_COMPLETE_SINGLE = 2;
 	public static final int LOAD_STATE_COMPLETE_ALL    = 3;
 
+	/**
+	 * 预加载模式下默认的提前距离(item个数)
+	 */
+	private static final int   DEFAULT_PREFETCH_DISTANCE     = 3;
+	private static final int   DEFAULT_PREFETCH_MAX_DISTANCE = 30;
+	/**
+	 * 默认按照一次加载大概需要的时间来估算滑动速度带来的提前量
+	 */
+	private static final long  DEFAULT_PREFETCH_LOOKAHEAD_MS = 1000;
+	private static final float VELOCITY_SMOOTHING            = 0.3f;
+	/**
+	 * 还没有测量过任何item的时候估算的item高度(dp)
+	 */
+	private static final int   DEFAULT_ITEM_EXTENT_DP        = 48;
+
 	private LoadRecyclerBaseAdapter mAdapter;
-	private LinearLayoutManager     mLayoutManager;
-	private int                     mLastVisibleItem;
 	private OnLoadMoreListener      mListener;
 	private int                     mCurrentLoadState;
+	/**
+	 * attach着的load区域的个数，数据变化的动画过程中新旧两个load区域的holder会同时attach
+	 */
+	private int                     mLoadViewAttachCount;
+	private OnLoadPreviousListener  mPreviousListener;
+	private int                     mPreviousLoadState;
+
+	private boolean        mPrefetchEnabled;
+	private int            mPrefetchDistance;
+	private int            mPrefetchMaxDistance;
+	private long           mPrefetchLookaheadMs;
+	private OverScroller   mFlingPredictor;
+	private float          mScrollVelocity;
+	private long           mLastScrollTime;
+	private int            mFlingRemaining;
+	/**
+	 * 超过这个速度(px/s)之后内容区域只做骨架绑定，0表示不开启
+	 */
+	private float          mSkeletonVelocity;
+	/**
+	 * 开启之后惯性滑动过程中加载回来的数据先留着，停下来或者load区域可见的时候再交给adapter
+	 */
+	private boolean        mDeferDeliveryWhileFling;
+	private List<Runnable> mHeldDeliveries;
+	/**
+	 * 加载状态已经由数据的持有者恢复了，onRestoreInstanceState()的时候不能再用保存的状态覆盖
+	 */
+	private boolean        mSkipLoadStateRestore;
+
+	private ViewHolderWarmer mWarmer;
+	private ItemPrefetcher   mItemPrefetcher;
+	private ItemExtentCache  mExtentCache;
+	/**
+	 * smoothScrollToPositionDirectly()的目标位置，停下来之后对齐到这个位置
+	 */
+	private int              mExtentTarget;
 
 	public interface OnLoadMoreListener {
 
 		void onLoadMore();
 	}
 
+	/**
+	 * 滑动到最前面的时候加载之前的数据
+	 */
+	public interface OnLoadPreviousListener {
+
+		void onLoadPrevious();
+	}
+
 	public LoadRecyclerView(Context context) {
 		this(context, null);
 	}
@@ -41,37 +109,334 @@ public class LoadRecyclerView extends RecyclerView {
 
 	private void init() {
 		mCurrentLoadState = LOAD_STATE_PREPARE;
+		mPreviousLoadState = LOAD_STATE_PREPARE;
+		mPrefetchDistance = DEFAULT_PREFETCH_DISTANCE;
+		mPrefetchMaxDistance = DEFAULT_PREFETCH_MAX_DISTANCE;
+		mPrefetchLookaheadMs = DEFAULT_PREFETCH_LOOKAHEAD_MS;
+		mHeldDeliveries = new ArrayList<>();
+		mExtentTarget = NO_POSITION;
+		// load区域状态变化的时候不做change动画
+		setItemAnimator(new LoadItemAnimator());
 		// 监听RecyclerView滑动过程
 		addOnScrollListener(new OnScrollListener() {
 			// OnScrollListener
 			@Override
 			public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
 				super.onScrollStateChanged(recyclerView, newState);
-				if (newState == RecyclerView.SCROLL_STATE_IDLE) {
-					// 为了避免当没有满一个屏幕的时候加载不了的问题
-					mLastVisibleItem = mLayoutManager.findLastVisibleItemPosition();
+				if (newState != RecyclerView.SCROLL_STATE_SETTLING) {
+					// 惯性滑动结束了，或者被手指按住了
+					releaseHeldDeliveries();
 				}
-				if (newState == RecyclerView.SCROLL_STATE_IDLE && mCurrentLoadState != LOAD_STATE_COMPLETE_ALL &&
-					mLastVisibleItem + 1 == mAdapter.getItemCount() && mListener != null &&
-					mCurrentLoadState != LOAD_STATE_DOING) {
-					mCurrentLoadState = LOAD_STATE_DOING;
-					mAdapter.setLoadState(mCurrentLoadState);
-					mListener.onLoadMore();
+				if (newState == RecyclerView.SCROLL_STATE_DRAGGING) {
+					// 被手指打断了
+					mExtentTarget = NO_POSITION;
+				}
+				if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+					if (mExtentTarget != NO_POSITION) {
+						// 估算的高度有误差，滑过去之后再对齐
+						scrollToPositionWithOffset(mExtentTarget, 0);
+						mExtentTarget = NO_POSITION;
+					}
+					mScrollVelocity = 0;
+					mFlingRemaining = 0;
+					if (mAdapter != null) {
+						// 停下来之后把还在屏幕上的只做了骨架绑定的item完整的绑定
+						mAdapter.setFastScrolling(false);
+						mAdapter.bindDeferredItems();
+					}
+					// 为了避免当没有满一个屏幕的时候加载不了的问题，load区域一直可见的时候停止滑动也要触发加载
+					if (mLoadViewAttachCount > 0 || (mAdapter != null && mAdapter.onItemCount() == 0)) {
+						loadMore();
+					}
 				}
 			}
 
 			@Override
 			public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
 				super.onScrolled(recyclerView, dx, dy);
-				mLastVisibleItem = mLayoutManager.findLastVisibleItemPosition();
+				if (isTrackingVelocity()) {
+					trackVelocity(isVertical() ? dy : dx);
+					updateFastScrolling();
+				}
+				if (mItemPrefetcher != null) {
+					mItemPrefetcher.onScrolled(dx, dy);
+				}
+				recordExtents();
 			}
 		});
 	}
 
+	/**
+	 * load区域attach的时候触发加载，不需要在滑动的过程中不停的去找最后一个可见的item
+	 */
+	private final LoadRecyclerBaseAdapter.OnLoadViewAttachListener mAttachListener
+		= new LoadRecyclerBaseAdapter.OnLoadViewAttachListener() {
+
+		@Override
+		public void onLoadViewAttached() {
+			mLoadViewAttachCount++;
+			if (!mHeldDeliveries.isEmpty()) {
+				// 已经滑到最后了，留着的数据要马上显示出来
+				post(mReleaseRunnable);
+			}
+			postLoadMore();
+		}
+
+		@Override
+		public void onLoadViewDetached() {
+			mLoadViewAttachCount = Math.max(0, mLoadViewAttachCount - 1);
+		}
+
+		@Override
+		public void onItemViewAttached(int position) {
+			if (mPrefetchEnabled && position + 1 + obtainPrefetchDistance() >= mAdapter.getItemCount()) {
+				postLoadMore();
+			}
+			if (mPreviousListener != null && position <= (mPrefetchEnabled ? obtainPrefetchDistance() : 0)) {
+				postLoadPrevious();
+			}
+		}
+	};
+
+	private final Runnable mLoadPreviousRunnable = new Runnable() {
+		@Override
+		public void run() {
+			loadPrevious();
+		}
+	};
+
+	/**
+	 * attach是在layout过程中回调的，这个时候不能去修改adapter
+	 */
+	private final Runnable mLoadMoreRunnable = new Runnable() {
+		@Override
+		public void run() {
+			loadMore();
+		}
+	};
+
+	/**
+	 * load区域attach的时候还在布局过程中，留着的数据要等布局完成之后再插入
+	 */
+	private final Runnable mReleaseRunnable = new Runnable() {
+		@Override
+		public void run() {
+			releaseHeldDeliveries();
+		}
+	};
+
 	public void setOnLoadMoreListener(OnLoadMoreListener listener) {
 		mListener = listener;
 	}
 
+	public void setOnLoadPreviousListener(OnLoadPreviousListener listener) {
+		mPreviousListener = listener;
+	}
+
+	/**
+	 * 预加载模式，在滑动或者fling的过程中提前触发加载更多
+	 */
+	public void setPrefetchEnabled(boolean enabled) {
+		mPrefetchEnabled = enabled;
+		if (enabled && mFlingPredictor == null) {
+			mFlingPredictor = new OverScroller(getContext());
+		}
+	}
+
+	/**
+	 * 预加载的提前距离(item个数)，会随着滑动速度从distance增长到maxDistance
+	 */
+	public void setPrefetchDistance(int distance, int maxDistance) {
+		mPrefetchDistance = Math.max(0, distance);
+		mPrefetchMaxDistance = Math.max(mPrefetchDistance, maxDistance);
+	}
+
+	/**
+	 * 按当前滑动速度预估多长时间之内会划过的距离，一般设置为一次加载大概的耗时
+	 */
+	public void setPrefetchLookahead(long lookaheadMs) {
+		mPrefetchLookaheadMs = Math.max(0, lookaheadMs);
+	}
+
+	/**
+	 * 滑动的时候利用每一帧剩下的时间提前创建和绑定滑动方向上后面的item，会占用RecyclerView的ViewCacheExtension
+	 */
+	public void setItemPrefetchEnabled(boolean enabled) {
+		if (enabled == (mItemPrefetcher != null)) {
+			return;
+		}
+		if (enabled) {
+			mItemPrefetcher = new ItemPrefetcher(this);
+			mItemPrefetcher.setAdapter(mAdapter);
+			setViewCacheExtension(mItemPrefetcher);
+		} else {
+			mItemPrefetcher.clear();
+			mItemPrefetcher.setAdapter(null);
+			mItemPrefetcher = null;
+			setViewCacheExtension(null);
+		}
+	}
+
+	/**
+	 * 每次最多提前准备几个item，默认2个，网格布局的时候一般设置成一行的个数
+	 */
+	public void setItemPrefetchCount(int count) {
+		if (mItemPrefetcher != null) {
+			mItemPrefetcher.setPrefetchCount(count);
+		}
+	}
+
+	/**
+	 * 滑动速度超过velocity(px/s)的时候内容区域只做骨架绑定(LoadRecyclerBaseAdapter.onBindItemSkeleton())
+	 * 停止滑动之后还在屏幕上的item再完整的绑定，velocity为0的时候关闭
+	 */
+	public void setSkeletonBindVelocity(float velocity) {
+		mSkeletonVelocity = Math.max(0, velocity);
+		if (mSkeletonVelocity == 0 && mAdapter != null) {
+			mAdapter.setFastScrolling(false);
+			mAdapter.bindDeferredItems();
+		}
+	}
+
+	/**
+	 * 开启之后惯性滑动(SCROLL_STATE_SETTLING)过程中加载完成的数据先不插入，不和滑动抢每一帧的时间
+	 * 惯性滑动结束或者load区域已经可见的时候再插入，PagedLoader往后加载的数据都通过deliverWhenSettled()交给adapter
+	 */
+	public void setDeferDeliveryWhileFling(boolean defer) {
+		mDeferDeliveryWhileFling = defer;
+		if (!defer) {
+			releaseHeldDeliveries();
+		}
+	}
+
+	/**
+	 * 主线程调用，delivery里面把加载回来的数据交给adapter，惯性滑动过程中会先留着，之前留着的按顺序在它前面执行
+	 */
+	public void deliverWhenSettled(Runnable delivery) {
+		if (mDeferDeliveryWhileFling && getScrollState() == SCROLL_STATE_SETTLING && mLoadViewAttachCount == 0) {
+			mHeldDeliveries.add(delivery);
+			return;
+		}
+		releaseHeldDeliveries();
+		delivery.run();
+	}
+
+	private void releaseHeldDeliveries() {
+		removeCallbacks(mReleaseRunnable);
+		if (mHeldDeliveries.isEmpty()) {
+			return;
+		}
+		List<Runnable> deliveries = new ArrayList<>(mHeldDeliveries);
+		mHeldDeliveries.clear();
+		for (Runnable delivery : deliveries) {
+			delivery.run();
+		}
+	}
+
+	/**
+	 * 当前滑动速度(px/s)，只有在预加载模式或者开启了骨架绑定的时候才会统计
+	 */
+	public float getScrollVelocity() {
+		return mScrollVelocity;
+	}
+
+	@Override
+	public boolean fling(int velocityX, int velocityY) {
+		boolean fling = super.fling(velocityX, velocityY);
+		if (fling && isTrackingVelocity()) {
+			// fling一开始就按初速度算，不用等平滑之后的速度慢慢涨上来
+			mScrollVelocity = Math.abs(isVertical() ? velocityY : velocityX);
+			mLastScrollTime = SystemClock.uptimeMillis();
+			updateFastScrolling();
+		}
+		if (fling && mPrefetchEnabled) {
+			// 预测fling最终会滑动的距离
+			mFlingPredictor.fling(0, 0, velocityX, velocityY, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE,
+								  Integer.MAX_VALUE);
+			mFlingRemaining = Math.abs(isVertical() ? mFlingPredictor.getFinalY() : mFlingPredictor.getFinalX());
+			mFlingPredictor.forceFinished(true);
+		}
+		return fling;
+	}
+
+	private boolean isTrackingVelocity() {
+		return mPrefetchEnabled || mSkeletonVelocity > 0;
+	}
+
+	/**
+	 * 速度降下来之后新出现的item直接完整的绑定，之前只做了骨架绑定的等停下来再绑定
+	 */
+	private void updateFastScrolling() {
+		if (mSkeletonVelocity > 0 && mAdapter != null) {
+			mAdapter.setFastScrolling(mScrollVelocity > mSkeletonVelocity);
+		}
+	}
+
+	private void trackVelocity(int delta) {
+		long now = SystemClock.uptimeMillis();
+		long interval = now - mLastScrollTime;
+		mLastScrollTime = now;
+		if (interval <= 0 || interval > 100) {
+			// 距离上一次滑动太久了，重新开始统计
+			mScrollVelocity = 0;
+		} else {
+			float velocity = Math.abs(delta) * 1000f / interval;
+			mScrollVelocity += (velocity - mScrollVelocity) * VELOCITY_SMOOTHING;
+		}
+		mFlingRemaining = Math.max(0, mFlingRemaining - Math.abs(delta));
+	}
+
+	/**
+	 * 根据滑动速度和fling的预测终点换算出提前多少个item触发加载
+	 */
+	private int obtainPrefetchDistance() {
+		int childCount = getChildCount();
+		if (childCount == 0) {
+			return mPrefetchDistance;
+		}
+		View first = getChildAt(0);
+		View last = getChildAt(childCount - 1);
+		int extent = isVertical() ? Math.abs(last.getBottom() - first.getTop()) : Math.abs(last.getRight() - first.getLeft());
+		int itemExtent = Math.max(1, extent / childCount);
+		long lookahead = Math.max((long) (mScrollVelocity * mPrefetchLookaheadMs / 1000), mFlingRemaining);
+		long distance = mPrefetchDistance + lookahead / itemExtent;
+		return (int) Math.min(distance, mPrefetchMaxDistance);
+	}
+
+	private boolean isVertical() {
+		LayoutManager layoutManager = getLayoutManager();
+		return layoutManager == null || layoutManager.canScrollVertically();
+	}
+
+	private void postLoadMore() {
+		removeCallbacks(mLoadMoreRunnable);
+		post(mLoadMoreRunnable);
+	}
+
+	private void postLoadPrevious() {
+		removeCallbacks(mLoadPreviousRunnable);
+		post(mLoadPreviousRunnable);
+	}
+
+	private void loadPrevious() {
+		if (mPreviousListener == null || mPreviousLoadState == LOAD_STATE_DOING ||
+			mPreviousLoadState == LOAD_STATE_COMPLETE_ALL) {
+			return;
+		}
+		mPreviousLoadState = LOAD_STATE_DOING;
+		mPreviousListener.onLoadPrevious();
+	}
+
+	private void loadMore() {
+		if (mAdapter == null || mListener == null || mCurrentLoadState == LOAD_STATE_DOING ||
+			mCurrentLoadState == LOAD_STATE_COMPLETE_ALL) {
+			return;
+		}
+		mCurrentLoadState = LOAD_STATE_DOING;
+		mAdapter.setLoadState(mCurrentLoadState);
+		mListener.onLoadMore();
+	}
+
 	/**
 	 * 加载完成
 	 */
@@ -91,22 +456,367 @@ public class LoadRecyclerView extends RecyclerView {
 		mAdapter.setLoadState(mCurrentLoadState);
 	}
 
+	/**
+	 * 直接设置往后加载的状态，LOAD_STATE_COMPLETE_SINGLE和completeLoadSingle()一样会变成LOAD_STATE_PREPARE
+	 */
+	public void setLoadState(int state) {
+		mCurrentLoadState = state == LOAD_STATE_COMPLETE_SINGLE ? LOAD_STATE_PREPARE : state;
+		if (mAdapter != null) {
+			mAdapter.setLoadState(mCurrentLoadState);
+		}
+	}
+
+	/**
+	 * 之前的数据加载完成，还可以继续往前加载
+	 */
+	public void completeLoadPrevious() {
+		mPreviousLoadState = LOAD_STATE_PREPARE;
+	}
+
+	/**
+	 * 之前已经没有数据了
+	 */
+	public void completeLoadPreviousAll() {
+		mPreviousLoadState = LOAD_STATE_COMPLETE_ALL;
+	}
+
+	/**
+	 * 第一页还在请求的时候在后台预先创建itemCount个内容区域的holder和一个load区域的holder
+	 * 要在setAdapter()和setLayoutManager()之后调用，内容区域有多种viewType的时候自己用ViewHolderWarmer
+	 */
+	public void warmUp(int itemCount) {
+		if (mWarmer != null) {
+			mWarmer.cancel();
+		}
+		mWarmer = new ViewHolderWarmer(this);
+		mWarmer.add(LoadRecyclerBaseAdapter.TYPE_ITEM, itemCount).add(LoadRecyclerBaseAdapter.TYPE_FOOTER, 1).start();
+	}
+
+	/**
+	 * 第一个可见的item的位置，和getFirstVisibleOffset()一起用来保存滑动的位置
+	 */
+	public int getFirstVisiblePosition() {
+		return getChildCount() == 0 ? NO_POSITION : getChildAdapterPosition(getChildAt(0));
+	}
+
+	/**
+	 * 第一个可见的item顶部(横向的时候是左边)相对于RecyclerView的偏移
+	 */
+	public int getFirstVisibleOffset() {
+		if (getChildCount() == 0) {
+			return 0;
+		}
+		View first = getChildAt(0);
+		return isVertical() ? first.getTop() - getPaddingTop() : first.getLeft() - getPaddingLeft();
+	}
+
+	/**
+	 * 记录每个item测量过的高度，滚动条按记录的高度计算，item高度不一样的时候也不会跳来跳去
+	 * 开启之后可以用getContentOffset()、scrollToContentOffset()和smoothScrollToPositionDirectly()
+	 * 只支持LinearLayoutManager(不包括GridLayoutManager)，没有测量过的item按测量过的平均高度估算
+	 */
+	public void setExtentCacheEnabled(boolean enabled) {
+		if (enabled == (mExtentCache != null)) {
+			return;
+		}
+		if (enabled) {
+			mExtentCache = new ItemExtentCache(DensityUtils.dp2px(getContext(), DEFAULT_ITEM_EXTENT_DP));
+			mExtentCache.setAdapter(mAdapter);
+			recordExtents();
+		} else {
+			mExtentCache.setAdapter(null);
+			mExtentCache = null;
+			mExtentTarget = NO_POSITION;
+		}
+	}
+
+	/**
+	 * 开启了setExtentCacheEnabled()的时候，当前滑动到的位置相对于内容顶部(横向的时候是左边)的距离
+	 * 保存下来之后可以用scrollToContentOffset()恢复，也可以用来画快速滑动的滑块
+	 *
+	 * @return 没有开启、不支持当前的LayoutManager或者还没有布局的时候返回-1
+	 */
+	public int getContentOffset() {
+		LinearLayoutManager layoutManager = obtainExtentLayoutManager();
+		if (layoutManager == null) {
+			return -1;
+		}
+		for (int index = 0; index < getChildCount(); index++) {
+			View child = getChildAt(index);
+			int position = getChildAdapterPosition(child);
+			if (position == NO_POSITION) {
+				continue;
+			}
+			LayoutParams params = (LayoutParams) child.getLayoutParams();
+			int start = isVertical() ? layoutManager.getDecoratedTop(child) - params.topMargin - getPaddingTop() :
+						layoutManager.getDecoratedLeft(child) - params.leftMargin - getPaddingLeft();
+			return (int) Math.min(Integer.MAX_VALUE, Math.max(0, mExtentCache.offsetOf(position) - start));
+		}
+		return -1;
+	}
+
+	/**
+	 * 直接滑动到距离内容顶部offset的地方，offset一般是getContentOffset()保存下来的值
+	 */
+	public void scrollToContentOffset(int offset) {
+		LinearLayoutManager layoutManager = obtainExtentLayoutManager();
+		int position = layoutManager == null ? NO_POSITION : mExtentCache.positionAt(Math.max(0, offset));
+		if (position == NO_POSITION) {
+			return;
+		}
+		layoutManager.scrollToPositionWithOffset(position, (int) (mExtentCache.offsetOf(position) - Math.max(0, offset)));
+	}
+
+	/**
+	 * 按记录的高度算出到position的距离，一次平滑滑动过去，停下来之后再对齐到position
+	 * 不像smoothScrollToPosition()那样一边滑动一边找目标，很远的位置也能很快的滑到
+	 * 没有开启setExtentCacheEnabled()的时候和smoothScrollToPosition()一样
+	 */
+	public void smoothScrollToPositionDirectly(int position) {
+		int offset = getContentOffset();
+		if (offset < 0 || position < 0 || position >= mExtentCache.size()) {
+			smoothScrollToPosition(position);
+			return;
+		}
+		long distance = mExtentCache.offsetOf(position) - offset;
+		if (distance == 0) {
+			return;
+		}
+		int delta = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, distance));
+		mExtentTarget = position;
+		if (isVertical()) {
+			smoothScrollBy(0, delta);
+		} else {
+			smoothScrollBy(delta, 0);
+		}
+	}
+
+	@Override
+	public int computeVerticalScrollOffset() {
+		int offset = isVertical() ? getContentOffset() : -1;
+		return offset < 0 ? super.computeVerticalScrollOffset() : offset;
+	}
+
+	@Override
+	public int computeVerticalScrollRange() {
+		if (!isVertical() || obtainExtentLayoutManager() == null || getChildCount() == 0) {
+			return super.computeVerticalScrollRange();
+		}
+		return (int) Math.min(Integer.MAX_VALUE, mExtentCache.total() + getPaddingTop() + getPaddingBottom());
+	}
+
+	@Override
+	public int computeVerticalScrollExtent() {
+		if (!isVertical() || obtainExtentLayoutManager() == null || getChildCount() == 0) {
+			return super.computeVerticalScrollExtent();
+		}
+		return getHeight();
+	}
+
+	@Override
+	public int computeHorizontalScrollOffset() {
+		int offset = isVertical() ? -1 : getContentOffset();
+		return offset < 0 ? super.computeHorizontalScrollOffset() : offset;
+	}
+
+	@Override
+	public int computeHorizontalScrollRange() {
+		if (isVertical() || obtainExtentLayoutManager() == null || getChildCount() == 0) {
+			return super.computeHorizontalScrollRange();
+		}
+		return (int) Math.min(Integer.MAX_VALUE, mExtentCache.total() + getPaddingLeft() + getPaddingRight());
+	}
+
+	@Override
+	public int computeHorizontalScrollExtent() {
+		if (isVertical() || obtainExtentLayoutManager() == null || getChildCount() == 0) {
+			return super.computeHorizontalScrollExtent();
+		}
+		return getWidth();
+	}
+
+	@Override
+	protected void onLayout(boolean changed, int l, int t, int r, int b) {
+		super.onLayout(changed, l, t, r, b);
+		recordExtents();
+	}
+
+	/**
+	 * 网格的一行有多个item，反向布局的时候偏移是从底部算的，这两种情况都不用记录的高度
+	 */
+	private LinearLayoutManager obtainExtentLayoutManager() {
+		LayoutManager layoutManager = getLayoutManager();
+		if (mExtentCache == null || !(layoutManager instanceof LinearLayoutManager) ||
+			layoutManager instanceof GridLayoutManager) {
+			return null;
+		}
+		LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+		return linearLayoutManager.getReverseLayout() ? null : linearLayoutManager;
+	}
+
+	/**
+	 * 布局和滑动之后记录屏幕上的item的高度，只有屏幕上的几个，不会影响滑动
+	 */
+	private void recordExtents() {
+		LinearLayoutManager layoutManager = obtainExtentLayoutManager();
+		if (layoutManager == null) {
+			return;
+		}
+		boolean vertical = isVertical();
+		for (int index = 0; index < getChildCount(); index++) {
+			View child = getChildAt(index);
+			int position = getChildAdapterPosition(child);
+			if (position == NO_POSITION) {
+				continue;
+			}
+			LayoutParams params = (LayoutParams) child.getLayoutParams();
+			int extent = vertical ? layoutManager.getDecoratedMeasuredHeight(child) + params.topMargin + params.bottomMargin :
+						 layoutManager.getDecoratedMeasuredWidth(child) + params.leftMargin + params.rightMargin;
+			mExtentCache.set(position, extent);
+		}
+	}
+
+	public void scrollToPositionWithOffset(int position, int offset) {
+		LayoutManager layoutManager = getLayoutManager();
+		if (layoutManager instanceof LinearLayoutManager) {
+			((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(position, offset);
+		} else if (layoutManager instanceof StaggeredGridLayoutManager) {
+			((StaggeredGridLayoutManager) layoutManager).scrollToPositionWithOffset(position, offset);
+		} else {
+			scrollToPosition(position);
+		}
+	}
+
+	/**
+	 * 加载状态由数据的持有者自己保存和恢复(比如PagedLoader.restoreState())，下一次onRestoreInstanceState()不再恢复保存的加载状态
+	 * 保存的时候数据可能只保存了一部分，保存的LOAD_STATE_COMPLETE_ALL会让没有恢复的页再也加载不了
+	 */
+	public void skipNextLoadStateRestore() {
+		mSkipLoadStateRestore = true;
+	}
+
+	@Override
+	protected Parcelable onSaveInstanceState() {
+		SavedState state = new SavedState(super.onSaveInstanceState());
+		state.mLoadState = mCurrentLoadState;
+		state.mPreviousLoadState = mPreviousLoadState;
+		return state;
+	}
+
+	@Override
+	protected void onRestoreInstanceState(Parcelable state) {
+		if (!(state instanceof SavedState)) {
+			super.onRestoreInstanceState(state);
+			return;
+		}
+		SavedState savedState = (SavedState) state;
+		super.onRestoreInstanceState(savedState.getSuperState());
+		if (mSkipLoadStateRestore) {
+			mSkipLoadStateRestore = false;
+			return;
+		}
+		// 之前正在进行的加载已经没有了，恢复成可以重新加载的状态
+		mCurrentLoadState = savedState.mLoadState == LOAD_STATE_DOING ? LOAD_STATE_PREPARE : savedState.mLoadState;
+		mPreviousLoadState = savedState.mPreviousLoadState == LOAD_STATE_DOING ? LOAD_STATE_PREPARE :
+							 savedState.mPreviousLoadState;
+		if (mAdapter != null) {
+			mAdapter.setLoadState(mCurrentLoadState);
+		}
+	}
+
 	@Override
 	public void setAdapter(Adapter adapter) {
 		super.setAdapter(adapter);
 		if (!(adapter instanceof LoadRecyclerBaseAdapter)) {
 			throw new IllegalArgumentException("LoadRecyclerView adapter must instanceof LoadRecyclerBaseAdapter");
 		}
+		if (mAdapter != null) {
+			mAdapter.setOnLoadViewAttachListener(null);
+		}
+		mLoadViewAttachCount = 0;
 		mAdapter = (LoadRecyclerBaseAdapter) adapter;
+		mAdapter.setOnLoadViewAttachListener(mAttachListener);
+		if (mItemPrefetcher != null) {
+			mItemPrefetcher.setAdapter(mAdapter);
+		}
+		if (mExtentCache != null) {
+			mExtentCache.setAdapter(mAdapter);
+		}
 	}
 
+	/**
+	 * 支持LinearLayoutManager，GridLayoutManager，StaggeredGridLayoutManager，load区域都会占满一行
+	 */
 	@Override
 	public void setLayoutManager(LayoutManager layout) {
 		super.setLayoutManager(layout);
-		if (!(layout instanceof LinearLayoutManager)) {
-			throw new IllegalArgumentException("LoadRecyclerView layoutManager must instanceof LinearLayoutManager");
+		if (mAdapter != null) {
+			mAdapter.setupFullSpan(layout);
 		}
-		mLayoutManager = (LinearLayoutManager) layout;
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		removeCallbacks(mLoadMoreRunnable);
+		removeCallbacks(mLoadPreviousRunnable);
+		// 不会再有滑动状态的变化了，留着的数据不能丢
+		releaseHeldDeliveries();
+		if (mWarmer != null) {
+			mWarmer.cancel();
+			mWarmer = null;
+		}
+		if (mItemPrefetcher != null) {
+			mItemPrefetcher.clear();
+		}
+	}
+
+	static class SavedState extends BaseSavedState {
+
+		int mLoadState;
+		int mPreviousLoadState;
+
+		SavedState(Parcelable superState) {
+			super(superState);
+		}
+
+		/**
+		 * BaseSavedState(Parcel)读RecyclerView的SavedState用的是null的ClassLoader，进程被杀之后恢复会找不到类
+		 */
+		SavedState(Parcel source, ClassLoader loader) {
+			super(readSuperState(source, loader));
+			mLoadState = source.readInt();
+			mPreviousLoadState = source.readInt();
+		}
+
+		private static Parcelable readSuperState(Parcel source, ClassLoader loader) {
+			Parcelable superState = source.readParcelable(loader == null ? LoadRecyclerView.class.getClassLoader() : loader);
+			return superState == null ? EMPTY_STATE : superState;
+		}
+
+		@Override
+		public void writeToParcel(Parcel dest, int flags) {
+			super.writeToParcel(dest, flags);
+			dest.writeInt(mLoadState);
+			dest.writeInt(mPreviousLoadState);
+		}
+
+		public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.ClassLoaderCreator<SavedState>() {
+			@Override
+			public SavedState createFromParcel(Parcel source) {
+				return new SavedState(source, null);
+			}
+
+			@Override
+			public SavedState createFromParcel(Parcel source, ClassLoader loader) {
+				return new SavedState(source, loader);
+			}
+
+			@Override
+			public SavedState[] newArray(int size) {
+				return new SavedState[size];
+			}
+		};
 	}
 
 }
@@ -0,0 +1,93 @@
+package com.tuacy.refreshloadlib.view;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.support.annotation.Nullable;
+import android.text.Layout;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * 直接绘制TextLayoutCache里面排好版的文字，绑定的时候不用再排版
+ * 高度就是文字的高度加上padding，新的文字和原来的高度一样的时候只重绘，不会重新measure
+ */
+public class PrecomputedTextView extends View {
+
+	private TextLayoutCache mCache;
+	private Layout          mLayout;
+	private long            mId;
+	private CharSequence    mText;
+
+	public PrecomputedTextView(Context context) {
+		this(context, null);
+	}
+
+	public PrecomputedTextView(Context context, @Nullable AttributeSet attrs) {
+		this(context, attrs, 0);
+	}
+
+	public PrecomputedTextView(Context context, @Nullable AttributeSet attrs, int defStyle) {
+		super(context, attrs, defStyle);
+	}
+
+	public void setTextLayoutCache(TextLayoutCache cache) {
+		mCache = cache;
+		mLayout = null;
+		requestLayout();
+	}
+
+	/**
+	 * @param id 和TextLayoutCache.precompute()的时候用的id一样
+	 */
+	public void setText(long id, CharSequence text) {
+		mId = id;
+		mText = text;
+		int width = getMeasuredWidth() - getPaddingLeft() - getPaddingRight();
+		if (mCache == null || text == null || width <= 0) {
+			mLayout = null;
+			requestLayout();
+			return;
+		}
+		int oldHeight = mLayout == null ? -1 : mLayout.getHeight();
+		mLayout = mCache.obtain(id, text, width);
+		if (mLayout.getHeight() != oldHeight) {
+			requestLayout();
+		}
+		invalidate();
+	}
+
+	public CharSequence getText() {
+		return mText;
+	}
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		int width = MeasureSpec.getSize(widthMeasureSpec);
+		int textWidth = Math.max(0, width - getPaddingLeft() - getPaddingRight());
+		if (mCache != null && mText != null && textWidth > 0) {
+			// 列表里面的文字宽度都一样，按确定的宽度测量之后后台就可以按这个宽度提前排版
+			// 父布局试探性的测量(AT_MOST、UNSPECIFIED)给的宽度不一定是最后的宽度，不拿来设置
+			if (MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.EXACTLY && textWidth != mCache.getWidth()) {
+				mCache.setWidth(textWidth);
+			}
+			if (mLayout == null || mLayout.getWidth() != textWidth) {
+				mLayout = mCache.obtain(mId, mText, textWidth);
+			}
+		} else {
+			mLayout = null;
+		}
+		int height = (mLayout == null ? 0 : mLayout.getHeight()) + getPaddingTop() + getPaddingBottom();
+		setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+	}
+
+	@Override
+	protected void onDraw(Canvas canvas) {
+		if (mLayout == null) {
+			return;
+		}
+		int count = canvas.save();
+		canvas.translate(getPaddingLeft(), getPaddingTop());
+		mLayout.draw(canvas);
+		canvas.restoreToCount(count);
+	}
+}
@@ -0,0 +1,200 @@
+package com.tuacy.refreshloadlib.view;
+
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+import android.view.View;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 多个RecyclerView(比如ViewPager里面的几个列表)共用的回收池，同一种布局只需要创建一次
+ * 每种viewType的容量根据attach过的RecyclerView里面同时可见的最大个数自动调整，统计每种viewType的命中和没命中的次数
+ * 共用的RecyclerView里面同一个viewType必须是同一种holder，只能在主线程使用
+ * 回收池可能比列表活得久(比如放在Activity里面)，统计用的对象只弱引用RecyclerView，列表被回收之后自动去掉
+ */
+public class SharedViewPool extends RecyclerView.RecycledViewPool {
+
+	/**
+	 * RecycledViewPool默认每种viewType最多缓存5个
+	 */
+	private static final int DEFAULT_CAPACITY = 5;
+	/**
+	 * 在同时可见的最大个数之外多缓存几个，滑动的时候一边回收一边取
+	 */
+	private static final int EXTRA_CAPACITY   = 2;
+	private static final int MAX_CAPACITY     = 32;
+
+	private final SparseIntArray       mHits;
+	private final SparseIntArray       mMisses;
+	private final SparseIntArray       mCapacities;
+	/**
+	 * 通过setMaxRecycledViews()指定过容量的viewType，不再自动调整
+	 */
+	private final SparseBooleanArray   mFixedTypes;
+	private final List<VisibleTracker> mTrackers;
+
+	public SharedViewPool() {
+		mHits = new SparseIntArray();
+		mMisses = new SparseIntArray();
+		mCapacities = new SparseIntArray();
+		mFixedTypes = new SparseBooleanArray();
+		mTrackers = new ArrayList<>();
+	}
+
+	/**
+	 * RecyclerView开始使用这个回收池，并且统计它里面每种viewType同时可见的个数
+	 */
+	public void attach(RecyclerView recyclerView) {
+		if (findTracker(recyclerView) >= 0) {
+			return;
+		}
+		VisibleTracker tracker = new VisibleTracker(recyclerView);
+		mTrackers.add(tracker);
+		recyclerView.setRecycledViewPool(this);
+		recyclerView.addOnChildAttachStateChangeListener(tracker);
+	}
+
+	/**
+	 * 不再统计这个RecyclerView，它还是继续使用这个回收池，需要换回独立的回收池的时候自己调用setRecycledViewPool()
+	 */
+	public void detach(RecyclerView recyclerView) {
+		int index = findTracker(recyclerView);
+		if (index >= 0) {
+			recyclerView.removeOnChildAttachStateChangeListener(mTrackers.remove(index));
+		}
+	}
+
+	@Override
+	public RecyclerView.ViewHolder getRecycledView(int viewType) {
+		RecyclerView.ViewHolder holder = super.getRecycledView(viewType);
+		SparseIntArray counter = holder == null ? mMisses : mHits;
+		counter.put(viewType, counter.get(viewType) + 1);
+		return holder;
+	}
+
+	@Override
+	public void setMaxRecycledViews(int viewType, int max) {
+		mFixedTypes.put(viewType, true);
+		mCapacities.put(viewType, max);
+		super.setMaxRecycledViews(viewType, max);
+	}
+
+	/**
+	 * 容量至少是capacity，和自动调整一样不会把viewType标记成指定过容量
+	 */
+	public void ensureCapacity(int viewType, int capacity) {
+		if (!mFixedTypes.get(viewType) && capacity > getCapacity(viewType)) {
+			mCapacities.put(viewType, capacity);
+			super.setMaxRecycledViews(viewType, capacity);
+		}
+	}
+
+	/**
+	 * @return viewType当前的容量
+	 */
+	public int getCapacity(int viewType) {
+		return mCapacities.get(viewType, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @return 从回收池里面拿到holder的次数
+	 */
+	public int getHitCount(int viewType) {
+		return mHits.get(viewType);
+	}
+
+	/**
+	 * @return 回收池里面没有，需要重新创建holder的次数
+	 */
+	public int getMissCount(int viewType) {
+		return mMisses.get(viewType);
+	}
+
+	public int getHitCount() {
+		return sum(mHits);
+	}
+
+	public int getMissCount() {
+		return sum(mMisses);
+	}
+
+	public void resetStats() {
+		mHits.clear();
+		mMisses.clear();
+	}
+
+	/**
+	 * 同时可见的个数变多的时候把容量调大，只增不减，避免来回调整
+	 */
+	private void onVisibleCountChanged(int viewType, int visibleCount) {
+		ensureCapacity(viewType, Math.min(MAX_CAPACITY, visibleCount + EXTRA_CAPACITY));
+	}
+
+	/**
+	 * 顺便去掉RecyclerView已经被回收了的
+	 */
+	private int findTracker(RecyclerView recyclerView) {
+		int found = -1;
+		for (int index = mTrackers.size() - 1; index >= 0; index--) {
+			RecyclerView tracked = mTrackers.get(index).mRecyclerView.get();
+			if (tracked == null) {
+				mTrackers.remove(index);
+				if (found > index) {
+					found--;
+				}
+			} else if (tracked == recyclerView) {
+				found = index;
+			}
+		}
+		return found;
+	}
+
+	private static int sum(SparseIntArray counter) {
+		int sum = 0;
+		for (int index = 0; index < counter.size(); index++) {
+			sum += counter.valueAt(index);
+		}
+		return sum;
+	}
+
+	/**
+	 * 统计一个RecyclerView里面每种viewType当前attach的个数
+	 */
+	private class VisibleTracker implements RecyclerView.OnChildAttachStateChangeListener {
+
+		private final WeakReference<RecyclerView> mRecyclerView;
+		private final SparseIntArray              mVisibleCounts;
+
+		VisibleTracker(RecyclerView recyclerView) {
+			mRecyclerView = new WeakReference<>(recyclerView);
+			mVisibleCounts = new SparseIntArray();
+		}
+
+		@Override
+		public void onChildViewAttachedToWindow(View view) {
+			RecyclerView recyclerView = mRecyclerView.get();
+			RecyclerView.ViewHolder holder = recyclerView == null ? null : recyclerView.getChildViewHolder(view);
+			if (holder == null) {
+				return;
+			}
+			int viewType = holder.getItemViewType();
+			int visibleCount = mVisibleCounts.get(viewType) + 1;
+			mVisibleCounts.put(viewType, visibleCount);
+			onVisibleCountChanged(viewType, visibleCount);
+		}
+
+		@Override
+		public void onChildViewDetachedFromWindow(View view) {
+			RecyclerView recyclerView = mRecyclerView.get();
+			RecyclerView.ViewHolder holder = recyclerView == null ? null : recyclerView.getChildViewHolder(view);
+			if (holder == null) {
+				return;
+			}
+			int viewType = holder.getItemViewType();
+			mVisibleCounts.put(viewType, Math.max(0, mVisibleCounts.get(viewType) - 1));
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package com.tuacy.refreshloadlib.view;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.support.v7.widget.RecyclerView;
+import android.util.LruCache;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.tuacy.refreshloadlib.adapter.LoadRecyclerBaseAdapter;
+
+/**
+ * 分组列表的组头，每一组第一项的上面留出组头的位置，最上面的组头吸顶，下一组的组头上来的时候把它顶上去
+ * 组头通过adapter的onCreateSectionHeader()创建，绑定和测量之后缓存起来，滑动的时候直接绘制，不会重新创建和测量
+ * 只支持竖直方向的LinearLayoutManager，不再使用的时候调用release()，否则adapter会一直引用着它
+ */
+public class StickyHeaderDecoration extends RecyclerView.ItemDecoration {
+
+	private static final int DEFAULT_CACHE_SIZE = 8;
+
+	private final LoadRecyclerBaseAdapter mAdapter;
+	/**
+	 * 组到已经绑定和测量好的组头
+	 */
+	private final LruCache<Integer, View> mHeaderCache;
+	private       int                     mHeaderWidth;
+
+	private final RecyclerView.AdapterDataObserver mObserver = new RecyclerView.AdapterDataObserver() {
+		@Override
+		public void onChanged() {
+			mHeaderCache.evictAll();
+		}
+
+		@Override
+		public void onItemRangeChanged(int positionStart, int itemCount) {
+			mHeaderCache.evictAll();
+		}
+
+		@Override
+		public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+			if (positionStart < footerPosition()) {
+				// 只是load区域的状态变化不影响组头
+				mHeaderCache.evictAll();
+			}
+		}
+
+		@Override
+		public void onItemRangeInserted(int positionStart, int itemCount) {
+			if (positionStart + itemCount < footerPosition()) {
+				// 往最后加的时候前面的组不会变
+				mHeaderCache.evictAll();
+			}
+		}
+
+		@Override
+		public void onItemRangeRemoved(int positionStart, int itemCount) {
+			mHeaderCache.evictAll();
+		}
+
+		@Override
+		public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+			mHeaderCache.evictAll();
+		}
+	};
+
+	public StickyHeaderDecoration(LoadRecyclerBaseAdapter adapter) {
+		this(adapter, DEFAULT_CACHE_SIZE);
+	}
+
+	public StickyHeaderDecoration(LoadRecyclerBaseAdapter adapter, int cacheSize) {
+		mAdapter = adapter;
+		mHeaderCache = new LruCache<>(Math.max(2, cacheSize));
+		mAdapter.registerAdapterDataObserver(mObserver);
+	}
+
+	/**
+	 * 从RecyclerView上移除之后调用，不再监听adapter的变化，释放缓存的组头
+	 * 之后不能再添加到RecyclerView上
+	 */
+	public void release() {
+		mAdapter.unregisterAdapterDataObserver(mObserver);
+		mHeaderCache.evictAll();
+	}
+
+	/**
+	 * 分帧插入的时候还没有插入的数据不算，用RecyclerView看到的load区域的位置判断是不是加在最后
+	 */
+	private int footerPosition() {
+		return mAdapter.getItemCount() - 1;
+	}
+
+	@Override
+	public void getItemOffsets(Rect outRect, View view, RecyclerView parent, RecyclerView.State state) {
+		int position = parent.getChildAdapterPosition(view);
+		if (position == RecyclerView.NO_POSITION || !mAdapter.isSectionStart(position)) {
+			outRect.set(0, 0, 0, 0);
+			return;
+		}
+		View header = obtainHeader(parent, mAdapter.getSectionForPosition(position));
+		outRect.set(0, header == null ? 0 : header.getHeight(), 0, 0);
+	}
+
+	@Override
+	public void onDrawOver(Canvas canvas, RecyclerView parent, RecyclerView.State state) {
+		int childCount = parent.getChildCount();
+		if (childCount == 0) {
+			return;
+		}
+		// 每一组第一项上面的组头
+		for (int index = 0; index < childCount; index++) {
+			View child = parent.getChildAt(index);
+			int position = parent.getChildAdapterPosition(child);
+			if (position != RecyclerView.NO_POSITION && mAdapter.isSectionStart(position)) {
+				View header = obtainHeader(parent, mAdapter.getSectionForPosition(position));
+				if (header != null) {
+					drawHeader(canvas, parent, header, child.getTop() - header.getHeight());
+				}
+			}
+		}
+		// 吸顶的组头
+		int firstPosition = parent.getChildAdapterPosition(parent.getChildAt(0));
+		int section = firstPosition == RecyclerView.NO_POSITION ? -1 : mAdapter.getSectionForPosition(firstPosition);
+		View header = section < 0 ? null : obtainHeader(parent, section);
+		if (header == null) {
+			return;
+		}
+		int top = parent.getPaddingTop();
+		for (int index = 1; index < childCount; index++) {
+			View child = parent.getChildAt(index);
+			int position = parent.getChildAdapterPosition(child);
+			if (position != RecyclerView.NO_POSITION && mAdapter.isSectionStart(position)) {
+				View nextHeader = obtainHeader(parent, mAdapter.getSectionForPosition(position));
+				int nextTop = child.getTop() - (nextHeader == null ? 0 : nextHeader.getHeight());
+				// 下一组的组头把当前的组头顶上去
+				top = Math.min(top, nextTop - header.getHeight());
+				break;
+			}
+		}
+		drawHeader(canvas, parent, header, top);
+	}
+
+	private void drawHeader(Canvas canvas, RecyclerView parent, View header, int top) {
+		int count = canvas.save();
+		canvas.translate(parent.getPaddingLeft(), top);
+		header.draw(canvas);
+		canvas.restoreToCount(count);
+	}
+
+	/**
+	 * 从缓存里面取，没有的时候创建、绑定、测量，RecyclerView的宽度变了之后重新测量
+	 */
+	private View obtainHeader(RecyclerView parent, int section) {
+		if (section < 0) {
+			return null;
+		}
+		int width = parent.getWidth() - parent.getPaddingLeft() - parent.getPaddingRight();
+		if (width != mHeaderWidth) {
+			mHeaderWidth = width;
+			mHeaderCache.evictAll();
+		}
+		View header = mHeaderCache.get(section);
+		if (header != null) {
+			return header;
+		}
+		header = mAdapter.onCreateSectionHeader(parent);
+		if (header == null) {
+			return null;
+		}
+		if (header.getLayoutParams() == null) {
+			header.setLayoutParams(new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+															  ViewGroup.LayoutParams.WRAP_CONTENT));
+		}
+		mAdapter.onBindSectionHeader(header, section);
+		int heightSpec = header.getLayoutParams().height > 0 ?
+						 View.MeasureSpec.makeMeasureSpec(header.getLayoutParams().height, View.MeasureSpec.EXACTLY) :
+						 View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+		header.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY), heightSpec);
+		header.layout(0, 0, header.getMeasuredWidth(), header.getMeasuredHeight());
+		mHeaderCache.put(section, header);
+		return header;
+	}
+}
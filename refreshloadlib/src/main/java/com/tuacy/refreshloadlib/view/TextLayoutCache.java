@@ -0,0 +1,167 @@
+package com.tuacy.refreshloadlib.view;
+
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.LruCache;
+
+/**
+ * 按item的id和宽度缓存排好版的文字，配合PrecomputedTextView使用
+ * 在后台线程(比如PagedLoader.PagePreparer)里面调用precompute()提前排版，绑定的时候直接拿排好的Layout
+ * 同一个cache里面的文字用同样的样式，样式只能通过setPaint()整个替换，替换之后原来排好的都不再使用
+ */
+public class TextLayoutCache {
+
+	private static final int DEFAULT_MAX_SIZE = 512;
+
+	private final    LruCache<Key, Layout> mLayouts;
+	/**
+	 * 当前的样式，替换的时候整个换掉，后台线程拿到的一直是同一份
+	 */
+	private volatile Style                 mStyle;
+	/**
+	 * 后台提前排版用的宽度，PrecomputedTextView按确定的宽度测量的时候设置，还不知道的时候是0
+	 */
+	private volatile int                   mWidth;
+
+	public TextLayoutCache(TextPaint paint) {
+		this(paint, DEFAULT_MAX_SIZE);
+	}
+
+	public TextLayoutCache(TextPaint paint, int maxSize) {
+		mStyle = new Style(paint, 0);
+		mLayouts = new LruCache<>(Math.max(1, maxSize));
+	}
+
+	/**
+	 * @return 当前样式的副本，修改之后要调用setPaint()才会生效
+	 */
+	public TextPaint getPaint() {
+		return new TextPaint(mStyle.mPaint);
+	}
+
+	/**
+	 * 主线程调用，换成新的样式，paint会被复制一份，之后再修改传进来的paint没有影响
+	 */
+	public void setPaint(TextPaint paint) {
+		mStyle = new Style(paint, mStyle.mVersion + 1);
+		mLayouts.evictAll();
+	}
+
+	public int getWidth() {
+		return mWidth;
+	}
+
+	/**
+	 * 后台提前排版用的宽度，知道宽度之前不能提前排版，比如在第一页请求之前可以按屏幕宽度设置
+	 * 缓存按宽度区分，宽度变了之后原来排好的不会被清掉，宽度变回来的时候还能用
+	 */
+	public void setWidth(int width) {
+		mWidth = width;
+	}
+
+	/**
+	 * 后台线程调用，宽度还不知道或者已经有排好的同样的文字的时候什么都不做
+	 */
+	public void precompute(long id, CharSequence text) {
+		int width = mWidth;
+		Style style = mStyle;
+		if (width <= 0 || text == null || find(id, text, width, style) != null) {
+			return;
+		}
+		Layout layout;
+		// TextPaint不能在多个线程里面同时测量，后台线程之间共用一份
+		synchronized (style.mBackgroundPaint) {
+			layout = build(text, style.mBackgroundPaint, width);
+		}
+		// 排版的时候样式已经换了的话，这个key不会再被查到，等着被LruCache淘汰
+		mLayouts.put(new Key(id, width, style.mVersion), layout);
+	}
+
+	/**
+	 * 主线程调用，没有提前排好的时候在这里排版
+	 */
+	public Layout obtain(long id, CharSequence text, int width) {
+		Style style = mStyle;
+		Layout layout = find(id, text, width, style);
+		if (layout == null) {
+			layout = build(text, style.mPaint, width);
+			mLayouts.put(new Key(id, width, style.mVersion), layout);
+		}
+		return layout;
+	}
+
+	/**
+	 * @return 按getWidth()排好的文字的高度，没有的时候返回-1，可以用来提前估算item的高度
+	 */
+	public int getHeight(long id) {
+		Layout layout = mLayouts.get(new Key(id, mWidth, mStyle.mVersion));
+		return layout == null ? -1 : layout.getHeight();
+	}
+
+	public void clear() {
+		mLayouts.evictAll();
+	}
+
+	/**
+	 * 同一个id的文字可能已经变了，文字一样的才能用
+	 */
+	private Layout find(long id, CharSequence text, int width, Style style) {
+		Layout layout = mLayouts.get(new Key(id, width, style.mVersion));
+		return layout != null && TextUtils.equals(layout.getText(), text) ? layout : null;
+	}
+
+	private static Layout build(CharSequence text, TextPaint paint, int width) {
+		return new StaticLayout(text, paint, Math.max(0, width), Layout.Alignment.ALIGN_NORMAL, 1f, 0f, false);
+	}
+
+	/**
+	 * 创建之后不再修改，主线程和后台线程各用一份
+	 */
+	private static final class Style {
+
+		final TextPaint mPaint;
+		final TextPaint mBackgroundPaint;
+		final int       mVersion;
+
+		Style(TextPaint paint, int version) {
+			mPaint = new TextPaint(paint);
+			mBackgroundPaint = new TextPaint(paint);
+			mVersion = version;
+		}
+	}
+
+	private static final class Key {
+
+		final long mId;
+		final int  mWidth;
+		final int  mVersion;
+
+		Key(long id, int width, int version) {
+			mId = id;
+			mWidth = width;
+			mVersion = version;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) o;
+			return mId == key.mId && mWidth == key.mWidth && mVersion == key.mVersion;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = (int) (mId ^ (mId >>> 32));
+			result = 31 * result + mWidth;
+			result = 31 * result + mVersion;
+			return result;
+		}
+	}
+}
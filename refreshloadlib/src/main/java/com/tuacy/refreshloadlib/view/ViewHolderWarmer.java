@@ -0,0 +1,107 @@
+package com.tuacy.refreshloadlib.view;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+
+/**
+ * 在后台线程预先创建holder放到RecyclerView的回收池里面，一般在第一页还在请求的时候调用
+ * 第一页回来之后直接从回收池里面取holder绑定，主线程上不用再inflate
+ * 要在setAdapter()和setLayoutManager()之后调用，inflate的时候要用LayoutManager生成LayoutParams
+ * holder的布局里面不能有只能在主线程创建的view
+ */
+public class ViewHolderWarmer {
+
+	/**
+	 * RecycledViewPool默认每种viewType最多缓存5个
+	 */
+	private static final int DEFAULT_POOL_CAPACITY = 5;
+
+	private static Handler sWorkerHandler;
+
+	private final    RecyclerView   mRecyclerView;
+	private final    Handler        mMainHandler;
+	/**
+	 * 每种viewType要创建几个
+	 */
+	private final    SparseIntArray mCounts;
+	private volatile boolean        mCancelled;
+
+	public ViewHolderWarmer(RecyclerView recyclerView) {
+		mRecyclerView = recyclerView;
+		mMainHandler = new Handler(Looper.getMainLooper());
+		mCounts = new SparseIntArray();
+	}
+
+	/**
+	 * 后台线程带Looper，有些view在构造函数里面会创建Handler
+	 */
+	private static synchronized Handler obtainWorkerHandler() {
+		if (sWorkerHandler == null) {
+			HandlerThread thread = new HandlerThread("ViewHolderWarmer", Process.THREAD_PRIORITY_BACKGROUND);
+			thread.start();
+			sWorkerHandler = new Handler(thread.getLooper());
+		}
+		return sWorkerHandler;
+	}
+
+	public ViewHolderWarmer add(int viewType, int count) {
+		if (count > 0) {
+			mCounts.put(viewType, mCounts.get(viewType) + count);
+		}
+		return this;
+	}
+
+	/**
+	 * 开始在后台创建，每创建好一个就放到回收池里面，回收池的容量不够的时候会调大
+	 */
+	public void start() {
+		final RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+		if (adapter == null) {
+			return;
+		}
+		final RecyclerView.RecycledViewPool pool = mRecyclerView.getRecycledViewPool();
+		for (int index = 0; index < mCounts.size(); index++) {
+			ensurePoolCapacity(pool, mCounts.keyAt(index), mCounts.valueAt(index));
+		}
+		final SparseIntArray counts = mCounts.clone();
+		obtainWorkerHandler().post(new Runnable() {
+			@Override
+			public void run() {
+				for (int index = 0; index < counts.size() && !mCancelled; index++) {
+					int viewType = counts.keyAt(index);
+					for (int count = 0; count < counts.valueAt(index) && !mCancelled; count++) {
+						final RecyclerView.ViewHolder holder = adapter.createViewHolder(mRecyclerView, viewType);
+						mMainHandler.post(new Runnable() {
+							@Override
+							public void run() {
+								// 这期间换了adapter的话holder已经不能用了
+								if (!mCancelled && mRecyclerView.getAdapter() == adapter) {
+									pool.putRecycledView(holder);
+								}
+							}
+						});
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * 还没有创建的不再创建，已经创建好还没有放到回收池的丢掉
+	 */
+	public void cancel() {
+		mCancelled = true;
+	}
+
+	private static void ensurePoolCapacity(RecyclerView.RecycledViewPool pool, int viewType, int count) {
+		if (pool instanceof SharedViewPool) {
+			((SharedViewPool) pool).ensureCapacity(viewType, count);
+		} else if (count > DEFAULT_POOL_CAPACITY) {
+			pool.setMaxRecycledViews(viewType, count);
+		}
+	}
+}
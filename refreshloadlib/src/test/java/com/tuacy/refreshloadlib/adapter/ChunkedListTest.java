@@ -0,0 +1,156 @@
+package com.tuacy.refreshloadlib.adapter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * ChunkedList和ArrayList对照，拆块、合并和快照之后的内容都要一样
+ */
+public class ChunkedListTest {
+
+	@Test
+	public void insertInMiddle_splitsChunk() {
+		ChunkedList<Integer> list = new ChunkedList<>(range(0, 10));
+		list.addAll(5, Arrays.asList(100, 101));
+		List<Integer> expected = new ArrayList<>(range(0, 10));
+		expected.addAll(5, Arrays.asList(100, 101));
+		assertEquals(expected, list);
+	}
+
+	@Test
+	public void removeInsideOneChunk_mergesRemainder() {
+		ChunkedList<Integer> list = new ChunkedList<>(range(0, 10));
+		list.subList(3, 7).clear();
+		assertEquals(Arrays.asList(0, 1, 2, 7, 8, 9), list);
+		list.add(10);
+		assertEquals(Arrays.asList(0, 1, 2, 7, 8, 9, 10), list);
+	}
+
+	@Test
+	public void removeAcrossChunks_keepsHeadAndTail() {
+		ChunkedList<Integer> list = new ChunkedList<>();
+		list.addAll(range(0, 5));
+		list.addAll(range(5, 10));
+		list.addAll(range(10, 15));
+		list.subList(3, 12).clear();
+		assertEquals(Arrays.asList(0, 1, 2, 12, 13, 14), list);
+	}
+
+	@Test
+	public void snapshot_unaffectedByLaterChanges() {
+		ChunkedList<Integer> list = new ChunkedList<>(range(0, 4));
+		List<Integer> snapshot = list.snapshot();
+		list.add(4);
+		list.set(0, 100);
+		list.remove(1);
+		list.add(1, 200);
+		assertEquals(range(0, 4), snapshot);
+		assertEquals(Arrays.asList(100, 200, 2, 3, 4), list);
+	}
+
+	@Test
+	public void snapshot_afterClear() {
+		ChunkedList<Integer> list = new ChunkedList<>(range(0, 4));
+		List<Integer> snapshot = list.snapshot();
+		list.clear();
+		list.addAll(range(10, 12));
+		assertEquals(range(0, 4), snapshot);
+		assertEquals(range(10, 12), list);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void snapshot_isImmutable() {
+		new ChunkedList<>(range(0, 4)).snapshot().add(4);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void get_outOfRange() {
+		new ChunkedList<>(range(0, 4)).get(4);
+	}
+
+	@Test
+	public void random_matchesArrayList() {
+		Random random = new Random(7);
+		for (int round = 0; round < 200; round++) {
+			ChunkedList<Integer> list = new ChunkedList<>();
+			List<Integer> model = new ArrayList<>();
+			List<List<Integer>> snapshots = new ArrayList<>();
+			List<List<Integer>> expectedSnapshots = new ArrayList<>();
+			int next = 0;
+			for (int operation = 0; operation < 200; operation++) {
+				int size = model.size();
+				switch (random.nextInt(9)) {
+					case 0:
+						list.add(next);
+						model.add(next++);
+						break;
+					case 1: {
+						List<Integer> page = range(next, next + random.nextInt(300));
+						next += page.size();
+						list.addAll(page);
+						model.addAll(page);
+						break;
+					}
+					case 2: {
+						int index = random.nextInt(size + 1);
+						List<Integer> items = range(next, next + 1 + random.nextInt(20));
+						next += items.size();
+						list.addAll(index, items);
+						model.addAll(index, items);
+						break;
+					}
+					case 3:
+						if (size > 0) {
+							int index = random.nextInt(size);
+							assertEquals(model.set(index, next), list.set(index, next));
+							next++;
+						}
+						break;
+					case 4:
+						if (size > 0) {
+							int index = random.nextInt(size);
+							assertEquals(model.remove(index), list.remove(index));
+						}
+						break;
+					case 5:
+						if (size > 0) {
+							int from = random.nextInt(size);
+							int to = from + random.nextInt(size - from + 1);
+							list.subList(from, to).clear();
+							model.subList(from, to).clear();
+						}
+						break;
+					case 6:
+						if (random.nextInt(10) == 0) {
+							list.clear();
+							model.clear();
+						}
+						break;
+					default:
+						snapshots.add(list.snapshot());
+						expectedSnapshots.add(new ArrayList<>(model));
+						break;
+				}
+				assertEquals("round " + round + " operation " + operation, model, list);
+			}
+			for (int index = 0; index < snapshots.size(); index++) {
+				assertEquals("round " + round + " snapshot " + index, expectedSnapshots.get(index), snapshots.get(index));
+			}
+		}
+	}
+
+	private static List<Integer> range(int from, int to) {
+		List<Integer> list = new ArrayList<>(Math.max(0, to - from));
+		for (int value = from; value < to; value++) {
+			list.add(value);
+		}
+		return Collections.unmodifiableList(list);
+	}
+}
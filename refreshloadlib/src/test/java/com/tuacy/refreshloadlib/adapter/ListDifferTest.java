@@ -0,0 +1,208 @@
+package com.tuacy.refreshloadlib.adapter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ListDiffer的增删改结果，item是"id:内容"格式的字符串，id相同是同一项，整个字符串相同是内容没有变化
+ */
+public class ListDifferTest {
+
+	private static final LoadRecyclerListAdapter.ItemCallback<String> CALLBACK
+		= new LoadRecyclerListAdapter.ItemCallback<String>() {
+
+		@Override
+		public boolean areItemsTheSame(String oldItem, String newItem) {
+			return id(oldItem).equals(id(newItem));
+		}
+
+		@Override
+		public boolean areContentsTheSame(String oldItem, String newItem) {
+			return oldItem.equals(newItem);
+		}
+	};
+
+	@Test
+	public void identicalLists_noUpdates() {
+		assertArrayEquals(new int[0], calculate(list("a", "b", "c"), list("a", "b", "c")));
+	}
+
+	@Test
+	public void insert_mergedIntoOneRange() {
+		int[] updates = calculate(list("a", "d"), list("a", "b", "c", "d"));
+		assertArrayEquals(new int[]{ListDiffer.UPDATE_INSERT, 1, 2}, updates);
+	}
+
+	@Test
+	public void insertAtHeadAndTail() {
+		int[] updates = calculate(list("b"), list("a", "b", "c"));
+		assertArrayEquals(new int[]{ListDiffer.UPDATE_INSERT, 0, 1, ListDiffer.UPDATE_INSERT, 2, 1}, updates);
+	}
+
+	@Test
+	public void remove_mergedIntoOneRange() {
+		int[] updates = calculate(list("a", "b", "c", "d"), list("a", "d"));
+		assertArrayEquals(new int[]{ListDiffer.UPDATE_REMOVE, 1, 2}, updates);
+	}
+
+	@Test
+	public void removeAll() {
+		int[] updates = calculate(list("a", "b"), new ArrayList<String>());
+		assertArrayEquals(new int[]{ListDiffer.UPDATE_REMOVE, 0, 2}, updates);
+	}
+
+	@Test
+	public void change_onlyContentsDiffer() {
+		int[] updates = calculate(list("a", "b", "c"), list("a", "b:2", "c:2"));
+		assertArrayEquals(new int[]{ListDiffer.UPDATE_CHANGE, 1, 2}, updates);
+	}
+
+	@Test
+	public void move_isRemoveAndInsert() {
+		List<String> oldList = list("a", "b", "c", "d");
+		List<String> newList = list("b", "c", "d", "a");
+		int[] updates = calculate(oldList, newList);
+		assertEquals(6, updates.length);
+		assertEquals(1, count(updates, ListDiffer.UPDATE_REMOVE));
+		assertEquals(1, count(updates, ListDiffer.UPDATE_INSERT));
+		assertApplies(oldList, newList, updates);
+	}
+
+	@Test
+	public void moveWithChange_contentsStillNotified() {
+		List<String> oldList = list("a", "b", "c");
+		List<String> newList = list("c", "a:2", "b");
+		assertApplies(oldList, newList, calculate(oldList, newList));
+	}
+
+	@Test
+	public void random_updatesReproduceNewListWithMinimalEdits() {
+		Random random = new Random(42);
+		for (int round = 0; round < 500; round++) {
+			List<String> oldList = randomList(random);
+			List<String> newList = mutate(oldList, random);
+			int[] updates = calculate(oldList, newList);
+			assertApplies(oldList, newList, updates);
+			int edits = count(updates, ListDiffer.UPDATE_INSERT) + count(updates, ListDiffer.UPDATE_REMOVE);
+			assertEquals("round " + round, oldList.size() + newList.size() - 2 * lcs(oldList, newList), edits);
+		}
+	}
+
+	private static int[] calculate(List<String> oldList, List<String> newList) {
+		return ListDiffer.calculate(oldList, newList, CALLBACK);
+	}
+
+	/**
+	 * 按顺序执行通知，保留下来的旧项要和新列表同一位置的是同一项，内容变了的要收到change
+	 */
+	private static void assertApplies(List<String> oldList, List<String> newList, int[] updates) {
+		// 每一格是旧列表里面的下标，插入的是-1，收到change之后加上changed标记
+		List<int[]> cells = new ArrayList<>();
+		for (int index = 0; index < oldList.size(); index++) {
+			cells.add(new int[]{index, 0});
+		}
+		for (int index = 0; index < updates.length; index += 3) {
+			int position = updates[index + 1];
+			int count = updates[index + 2];
+			assertTrue(count > 0);
+			switch (updates[index]) {
+				case ListDiffer.UPDATE_INSERT:
+					for (int offset = 0; offset < count; offset++) {
+						cells.add(position + offset, new int[]{-1, 0});
+					}
+					break;
+				case ListDiffer.UPDATE_REMOVE:
+					cells.subList(position, position + count).clear();
+					break;
+				case ListDiffer.UPDATE_CHANGE:
+					for (int offset = 0; offset < count; offset++) {
+						cells.get(position + offset)[1] = 1;
+					}
+					break;
+			}
+		}
+		assertEquals(newList.size(), cells.size());
+		for (int position = 0; position < cells.size(); position++) {
+			int oldIndex = cells.get(position)[0];
+			if (oldIndex < 0) {
+				continue;
+			}
+			String oldItem = oldList.get(oldIndex);
+			String newItem = newList.get(position);
+			assertTrue(oldItem + " -> " + newItem, CALLBACK.areItemsTheSame(oldItem, newItem));
+			assertEquals(oldItem + " -> " + newItem, !CALLBACK.areContentsTheSame(oldItem, newItem),
+						 cells.get(position)[1] == 1);
+		}
+	}
+
+	private static int count(int[] updates, int type) {
+		int count = 0;
+		for (int index = 0; index < updates.length; index += 3) {
+			if (updates[index] == type) {
+				count += updates[index + 2];
+			}
+		}
+		return count;
+	}
+
+	private static int lcs(List<String> oldList, List<String> newList) {
+		int[][] lengths = new int[oldList.size() + 1][newList.size() + 1];
+		for (int x = 1; x <= oldList.size(); x++) {
+			for (int y = 1; y <= newList.size(); y++) {
+				lengths[x][y] = CALLBACK.areItemsTheSame(oldList.get(x - 1), newList.get(y - 1)) ?
+								lengths[x - 1][y - 1] + 1 : Math.max(lengths[x - 1][y], lengths[x][y - 1]);
+			}
+		}
+		return lengths[oldList.size()][newList.size()];
+	}
+
+	private static List<String> randomList(Random random) {
+		List<String> list = new ArrayList<>();
+		int size = random.nextInt(30);
+		for (int index = 0; index < size; index++) {
+			list.add(String.valueOf(index));
+		}
+		return list;
+	}
+
+	/**
+	 * 随机的插入、删除、移动和修改内容，id不重复
+	 */
+	private static List<String> mutate(List<String> source, Random random) {
+		List<String> list = new ArrayList<>(source);
+		int nextId = 1000;
+		int operations = random.nextInt(8);
+		for (int operation = 0; operation < operations; operation++) {
+			int type = random.nextInt(4);
+			if (type == 0 || list.isEmpty()) {
+				list.add(random.nextInt(list.size() + 1), String.valueOf(nextId++));
+			} else if (type == 1) {
+				list.remove(random.nextInt(list.size()));
+			} else if (type == 2) {
+				String item = list.remove(random.nextInt(list.size()));
+				list.add(random.nextInt(list.size() + 1), item);
+			} else {
+				int position = random.nextInt(list.size());
+				list.set(position, id(list.get(position)) + ":" + operation);
+			}
+		}
+		return list;
+	}
+
+	private static List<String> list(String... items) {
+		return new ArrayList<>(Arrays.asList(items));
+	}
+
+	private static String id(String item) {
+		int separator = item.indexOf(':');
+		return separator < 0 ? item : item.substring(0, separator);
+	}
+}
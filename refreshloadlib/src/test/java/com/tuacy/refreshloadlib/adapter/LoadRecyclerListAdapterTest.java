@@ -0,0 +1,89 @@
+package com.tuacy.refreshloadlib.adapter;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 事务里面往后加的数据有重复项的时候，后面的删除位置按去掉重复项之后的数据算
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class LoadRecyclerListAdapterTest {
+
+	private LongAdapter mAdapter;
+
+	@Before
+	public void setUp() {
+		mAdapter = new LongAdapter();
+		mAdapter.setItemIdProvider(new LoadRecyclerListAdapter.ItemIdProvider<Long>() {
+			@Override
+			public long getItemId(Long item) {
+				return item;
+			}
+		});
+		mAdapter.setData(Arrays.asList(1L, 2L));
+	}
+
+	@Test
+	public void appendWithDuplicates_thenRemoveStagedItem() {
+		// 2已经在adapter里面，3重复了一次，实际加进去的是[3, 4]
+		mAdapter.beginTransaction().append(Arrays.asList(2L, 3L, 3L, 4L)).removeRange(3, 1).commit();
+		mAdapter.executePendingTransactions();
+		assertEquals(Arrays.asList(1L, 2L, 3L), mAdapter.getData());
+	}
+
+	@Test
+	public void appendWithDuplicates_removeAcrossCommittedAndStaged() {
+		mAdapter.beginTransaction().append(Arrays.asList(2L, 3L, 3L, 4L)).removeRange(1, 2).commit();
+		mAdapter.executePendingTransactions();
+		assertEquals(Arrays.asList(1L, 4L), mAdapter.getData());
+	}
+
+	@Test
+	public void removedStagedItem_canBeAppendedAgain() {
+		mAdapter.beginTransaction().append(Arrays.asList(3L)).removeRange(2, 1).append(Arrays.asList(3L)).commit();
+		mAdapter.executePendingTransactions();
+		assertEquals(Arrays.asList(1L, 2L, 3L), mAdapter.getData());
+	}
+
+	@Test
+	public void removeOutOfRange_clamped() {
+		mAdapter.beginTransaction().append(Arrays.asList(2L, 3L)).removeRange(3, 5).commit();
+		mAdapter.beginTransaction().removeRange(1, 10).commit();
+		mAdapter.executePendingTransactions();
+		assertEquals(Arrays.asList(1L), mAdapter.getData());
+	}
+
+	private static class LongAdapter extends LoadRecyclerListAdapter<Long> {
+
+		@Override
+		public RecyclerView.ViewHolder onCreateLoadViewHolder(ViewGroup parent, int viewType, int loadState) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void onBindLoadViewHolder(RecyclerView.ViewHolder holder, int position, int loadState) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public RecyclerView.ViewHolder onCreateEmptyViewHolder(ViewGroup parent, int viewType) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void onBindEmptyViewHolder(RecyclerView.ViewHolder holder, int position) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package com.tuacy.refreshloadlib.adapter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Utf8ArenaStore和ArrayList对照，整理arena和快照之后的内容都要一样
+ */
+public class Utf8ArenaStoreTest {
+
+	@Test
+	public void encodesNullEmptyAndMultiByte() {
+		List<String> items = Arrays.asList("abc", null, "", "中文", "emoji 😀", "");
+		Utf8ArenaStore store = new Utf8ArenaStore(items);
+		assertEquals(items, store);
+		assertNull(store.get(1));
+	}
+
+	@Test
+	public void oversizedString_getsOwnArena() {
+		String large = repeat('x', (1 << 18) + 100);
+		Utf8ArenaStore store = new Utf8ArenaStore(Arrays.asList("a", large, "b"));
+		store.add("c");
+		assertEquals(Arrays.asList("a", large, "b", "c"), store);
+	}
+
+	@Test
+	public void overwrites_compactAndKeepSnapshot() {
+		Utf8ArenaStore store = new Utf8ArenaStore();
+		List<String> model = new ArrayList<>();
+		for (int index = 0; index < 100; index++) {
+			String item = index + repeat('a', 1000);
+			store.add(item);
+			model.add(item);
+		}
+		List<String> snapshot = store.snapshot();
+		List<String> expectedSnapshot = new ArrayList<>(model);
+		// 没用的字节远远超过一个arena，一定会整理
+		for (int round = 0; round < 20; round++) {
+			for (int index = 0; index < model.size(); index++) {
+				String item = round + ":" + index + repeat('b', 1000);
+				store.set(index, item);
+				model.set(index, item);
+			}
+		}
+		assertEquals(model, store);
+		assertEquals(expectedSnapshot, snapshot);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void snapshot_isImmutable() {
+		new Utf8ArenaStore(Arrays.asList("a")).snapshot().set(0, "b");
+	}
+
+	@Test
+	public void random_matchesArrayList() {
+		Random random = new Random(11);
+		for (int round = 0; round < 30; round++) {
+			Utf8ArenaStore store = new Utf8ArenaStore();
+			List<String> model = new ArrayList<>();
+			List<List<String>> snapshots = new ArrayList<>();
+			List<List<String>> expectedSnapshots = new ArrayList<>();
+			for (int operation = 0; operation < 400; operation++) {
+				int size = model.size();
+				switch (random.nextInt(8)) {
+					case 0:
+					case 1: {
+						String item = randomString(random);
+						store.add(item);
+						model.add(item);
+						break;
+					}
+					case 2: {
+						int index = random.nextInt(size + 1);
+						List<String> items = Arrays.asList(randomString(random), randomString(random));
+						store.addAll(index, items);
+						model.addAll(index, items);
+						break;
+					}
+					case 3:
+						if (size > 0) {
+							int index = random.nextInt(size);
+							String item = randomString(random);
+							assertEquals(model.set(index, item), store.set(index, item));
+						}
+						break;
+					case 4:
+						if (size > 0) {
+							int from = random.nextInt(size);
+							int to = from + random.nextInt(Math.min(10, size - from) + 1);
+							store.subList(from, to).clear();
+							model.subList(from, to).clear();
+						}
+						break;
+					case 5:
+						if (random.nextInt(20) == 0) {
+							store.clear();
+							model.clear();
+						}
+						break;
+					default:
+						snapshots.add(store.snapshot());
+						expectedSnapshots.add(new ArrayList<>(model));
+						break;
+				}
+				assertEquals("round " + round + " operation " + operation, model, store);
+			}
+			for (int index = 0; index < snapshots.size(); index++) {
+				assertEquals("round " + round + " snapshot " + index, expectedSnapshots.get(index), snapshots.get(index));
+			}
+		}
+	}
+
+	/**
+	 * 有null、空字符串、多字节字符，偶尔有几十KB的长字符串让arena很快写满
+	 */
+	private static String randomString(Random random) {
+		switch (random.nextInt(10)) {
+			case 0:
+				return null;
+			case 1:
+				return "";
+			case 2:
+				return repeat('长', 10000 + random.nextInt(30000));
+			default:
+				StringBuilder builder = new StringBuilder();
+				int length = random.nextInt(40);
+				for (int index = 0; index < length; index++) {
+					builder.append(random.nextBoolean() ? (char) ('a' + random.nextInt(26)) : (char) (0x4e00 + random.nextInt(100)));
+				}
+				return builder.toString();
+		}
+	}
+
+	private static String repeat(char c, int count) {
+		char[] chars = new char[count];
+		Arrays.fill(chars, c);
+		return new String(chars);
+	}
+}
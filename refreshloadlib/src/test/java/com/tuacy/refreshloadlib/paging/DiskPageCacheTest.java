@@ -0,0 +1,114 @@
+package com.tuacy.refreshloadlib.paging;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 截断或者写坏了的缓存文件当成没有缓存，删掉文件，不会按文件里面的长度分配很大的内存
+ */
+public class DiskPageCacheTest {
+
+	private static final List<String> PAGE = Arrays.asList("a", "", "中文");
+
+	private File mDirectory;
+
+	@Before
+	public void setUp() throws IOException {
+		mDirectory = File.createTempFile("page-cache", "");
+		mDirectory.delete();
+		mDirectory.mkdirs();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = mDirectory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		mDirectory.delete();
+	}
+
+	@Test
+	public void putAndGet() {
+		DiskPageCache<String> cache = newCache();
+		cache.put("list", PAGE);
+		assertEquals(PAGE, cache.get("list"));
+		// 重新扫描目录之后还能读到
+		assertEquals(PAGE, newCache().get("list"));
+	}
+
+	@Test
+	public void hugeItemLength_removed() throws IOException {
+		newCache().put("list", PAGE);
+		// MAGIC, VERSION, key长度, "list", 个数, 然后是第一项的长度
+		writeInt(16 + 4, Integer.MAX_VALUE);
+		assertCorruptRemoved();
+	}
+
+	@Test
+	public void hugeKeyLength_removed() throws IOException {
+		newCache().put("list", PAGE);
+		writeInt(8, Integer.MAX_VALUE - 1);
+		assertCorruptRemoved();
+	}
+
+	@Test
+	public void hugeCount_removed() throws IOException {
+		newCache().put("list", PAGE);
+		writeInt(16, Integer.MAX_VALUE);
+		assertCorruptRemoved();
+	}
+
+	@Test
+	public void truncated_removed() throws IOException {
+		newCache().put("list", PAGE);
+		RandomAccessFile file = new RandomAccessFile(cacheFile(), "rw");
+		try {
+			file.setLength(file.length() - 3);
+		} finally {
+			file.close();
+		}
+		assertCorruptRemoved();
+	}
+
+	private void assertCorruptRemoved() {
+		DiskPageCache<String> cache = newCache();
+		assertNull(cache.get("list"));
+		assertEquals(0, mDirectory.listFiles().length);
+		// 删掉之后可以重新写
+		cache.put("list", PAGE);
+		assertEquals(PAGE, cache.get("list"));
+	}
+
+	private void writeInt(long offset, int value) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(cacheFile(), "rw");
+		try {
+			file.seek(offset);
+			file.writeInt(value);
+		} finally {
+			file.close();
+		}
+	}
+
+	private File cacheFile() {
+		File[] files = mDirectory.listFiles();
+		assertEquals(1, files.length);
+		return files[0];
+	}
+
+	private DiskPageCache<String> newCache() {
+		return new DiskPageCache<>(mDirectory, 1024 * 1024, new StringPageCodec());
+	}
+}
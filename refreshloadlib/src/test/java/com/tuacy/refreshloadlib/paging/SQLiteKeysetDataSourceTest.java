@@ -0,0 +1,190 @@
+package com.tuacy.refreshloadlib.paging;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Parcel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 在真实的SQLite表上往后、往前翻页，排序列有大量重复的值，id不连续
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class SQLiteKeysetDataSourceTest {
+
+	private static final int ROW_COUNT = 100;
+	private static final int PAGE_SIZE = 7;
+
+	private static final SQLiteKeysetDataSource.RowMapper<Long> ID_MAPPER = new SQLiteKeysetDataSource.RowMapper<Long>() {
+		@Override
+		public Long map(Cursor cursor) {
+			return cursor.getLong(cursor.getColumnIndexOrThrow("_id"));
+		}
+	};
+
+	private SQLiteDatabase mDatabase;
+	/**
+	 * 按(score, _id)排好序的所有id
+	 */
+	private List<Long>     mSortedIds;
+
+	@Before
+	public void setUp() {
+		mDatabase = SQLiteDatabase.create(null);
+		mDatabase.execSQL("CREATE TABLE items (_id INTEGER PRIMARY KEY, score INTEGER NOT NULL, name TEXT)");
+		mDatabase.execSQL("CREATE INDEX items_score ON items (score, _id)");
+		List<long[]> rows = new ArrayList<>();
+		for (int index = 0; index < ROW_COUNT; index++) {
+			// id跳着分配，位数不一样，按字符串比较的话顺序就错了；score每个值重复五次
+			rows.add(new long[]{index * 3 + 1, index % 20});
+		}
+		Collections.shuffle(rows, new Random(1));
+		for (long[] row : rows) {
+			ContentValues values = new ContentValues();
+			values.put("_id", row[0]);
+			values.put("score", row[1]);
+			values.put("name", "item" + row[0]);
+			mDatabase.insert("items", null, values);
+		}
+		Collections.sort(rows, new java.util.Comparator<long[]>() {
+			@Override
+			public int compare(long[] left, long[] right) {
+				return left[1] != right[1] ? Long.compare(left[1], right[1]) : Long.compare(left[0], right[0]);
+			}
+		});
+		mSortedIds = new ArrayList<>();
+		for (long[] row : rows) {
+			mSortedIds.add(row[0]);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		mDatabase.close();
+	}
+
+	@Test
+	public void keyOnly_pagesForwardInNumericOrder() throws Exception {
+		SQLiteKeysetDataSource<Long> source = new SQLiteKeysetDataSource<>(mDatabase, "items", "_id",
+																		   new String[]{"name"}, ID_MAPPER);
+		List<Long> expected = new ArrayList<>();
+		for (int index = 0; index < ROW_COUNT; index++) {
+			expected.add((long) index * 3 + 1);
+		}
+		assertEquals(expected, pageForward(source));
+	}
+
+	@Test
+	public void sortColumnWithTies_pagesForwardWithoutGapsOrDuplicates() throws Exception {
+		assertEquals(mSortedIds, pageForward(sortedSource(null, null)));
+	}
+
+	@Test
+	public void sortColumnWithTies_pagesBackward() throws Exception {
+		SQLiteKeysetDataSource<Long> source = sortedSource(null, null);
+		// 从中间一页开始往前翻
+		Page<SQLiteKeysetDataSource.Anchor, Long> page = source.loadAfter(anchorOf(mSortedIds.get(49)), PAGE_SIZE);
+		List<Long> result = new ArrayList<>(page.getData());
+		assertTrue(page.hasPrevious());
+		while (page.hasPrevious()) {
+			page = source.loadBefore(page.getPrevKey(), PAGE_SIZE);
+			result.addAll(0, page.getData());
+		}
+		assertEquals(mSortedIds.subList(0, 50 + PAGE_SIZE), result);
+	}
+
+	/**
+	 * 上一页最后一行在两次翻页之间被删掉了(比如同步)，还要能接着往后翻
+	 */
+	@Test
+	public void anchorRowDeleted_keepsPaging() throws Exception {
+		SQLiteKeysetDataSource<Long> source = sortedSource(null, null);
+		Page<SQLiteKeysetDataSource.Anchor, Long> page = source.loadInitial(PAGE_SIZE);
+		List<Long> result = new ArrayList<>(page.getData());
+		List<Long> expected = new ArrayList<>(mSortedIds);
+		while (page.hasMore()) {
+			Long anchorId = page.getNextKey().getKey();
+			mDatabase.delete("items", "_id = " + anchorId, null);
+			expected.remove(anchorId);
+			result.remove(anchorId);
+			page = source.loadAfter(page.getNextKey(), PAGE_SIZE);
+			result.addAll(page.getData());
+		}
+		assertEquals(expected, result);
+	}
+
+	@Test
+	public void anchor_parcelRoundTrip() throws Exception {
+		SQLiteKeysetDataSource.Anchor anchor = sortedSource(null, null).loadInitial(PAGE_SIZE).getNextKey();
+		Parcel parcel = Parcel.obtain();
+		try {
+			parcel.writeValue(anchor);
+			parcel.setDataPosition(0);
+			SQLiteKeysetDataSource.Anchor restored = (SQLiteKeysetDataSource.Anchor) parcel.readValue(getClass().getClassLoader());
+			assertEquals(mSortedIds.subList(PAGE_SIZE, 2 * PAGE_SIZE),
+						 sortedSource(null, null).loadAfter(restored, PAGE_SIZE).getData());
+		} finally {
+			parcel.recycle();
+		}
+	}
+
+	@Test
+	public void selection_combinedWithKeyCondition() throws Exception {
+		List<Long> expected = new ArrayList<>();
+		for (Long id : mSortedIds) {
+			if (id % 2 == 0) {
+				expected.add(id);
+			}
+		}
+		assertEquals(expected, pageForward(sortedSource("_id % ? = 0", new String[]{"2"})));
+	}
+
+	@Test
+	public void emptyTable_noMorePages() throws Exception {
+		mDatabase.delete("items", null, null);
+		Page<SQLiteKeysetDataSource.Anchor, Long> page = sortedSource(null, null).loadInitial(PAGE_SIZE);
+		assertTrue(page.getData().isEmpty());
+		assertFalse(page.hasMore());
+	}
+
+	/**
+	 * 和setUp()里面一样，score是id在插入顺序里面的序号对20取余
+	 */
+	private static SQLiteKeysetDataSource.Anchor anchorOf(long id) {
+		return new SQLiteKeysetDataSource.Anchor(((id - 1) / 3) % 20, id);
+	}
+
+	private SQLiteKeysetDataSource<Long> sortedSource(String selection, String[] selectionArgs) {
+		return new SQLiteKeysetDataSource<>(mDatabase, "items", "score", "_id", new String[]{"name"}, selection,
+											selectionArgs, ID_MAPPER);
+	}
+
+	private static List<Long> pageForward(SQLiteKeysetDataSource<Long> source) throws Exception {
+		Page<SQLiteKeysetDataSource.Anchor, Long> page = source.loadInitial(PAGE_SIZE);
+		List<Long> result = new ArrayList<>(page.getData());
+		assertFalse(page.hasPrevious());
+		while (page.hasMore()) {
+			assertEquals(PAGE_SIZE, page.getData().size());
+			page = source.loadAfter(page.getNextKey(), PAGE_SIZE);
+			assertTrue(page.hasPrevious());
+			result.addAll(page.getData());
+		}
+		return result;
+	}
+}
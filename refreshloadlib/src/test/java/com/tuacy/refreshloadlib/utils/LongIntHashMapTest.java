@@ -0,0 +1,106 @@
+package com.tuacy.refreshloadlib.utils;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * LongIntHashMap和HashMap对照，删除之后往前挪的key都要还能找到
+ */
+public class LongIntHashMapTest {
+
+	@Test
+	public void putGetRemove() {
+		LongIntHashMap map = new LongIntHashMap();
+		map.put(1L, 10);
+		map.put(-1L, 20);
+		map.put(Long.MAX_VALUE, 30);
+		map.put(1L, 11);
+		assertEquals(3, map.size());
+		assertEquals(11, map.get(1L, -1));
+		assertEquals(20, map.get(-1L, -1));
+		assertEquals(30, map.get(Long.MAX_VALUE, -1));
+		map.remove(-1L);
+		assertFalse(map.containsKey(-1L));
+		assertEquals(-1, map.get(-1L, -1));
+		assertEquals(2, map.size());
+		map.remove(12345L);
+		assertEquals(2, map.size());
+	}
+
+	@Test
+	public void clear_removesEverything() {
+		LongIntHashMap map = new LongIntHashMap();
+		for (long key = 0; key < 100; key++) {
+			map.put(key, (int) key);
+		}
+		map.clear();
+		assertEquals(0, map.size());
+		assertFalse(map.containsKey(5L));
+		map.put(5L, 1);
+		assertTrue(map.containsKey(5L));
+	}
+
+	/**
+	 * 容量不变的小表里面反复插入删除，探测串会绕过数组的末尾，删除的时候往前挪要处理绕回来的情况
+	 */
+	@Test
+	public void removeWithWrapAround_keepsOtherKeysReachable() {
+		Random random = new Random(3);
+		for (int round = 0; round < 2000; round++) {
+			LongIntHashMap map = new LongIntHashMap(4);
+			Map<Long, Integer> model = new HashMap<>();
+			for (int operation = 0; operation < 50; operation++) {
+				long key = random.nextInt(12);
+				if (random.nextInt(3) == 0) {
+					map.remove(key);
+					model.remove(key);
+				} else if (model.size() < 6 || model.containsKey(key)) {
+					map.put(key, operation);
+					model.put(key, operation);
+				}
+				assertMatches(model, map, 12);
+			}
+		}
+	}
+
+	@Test
+	public void random_matchesHashMap() {
+		Random random = new Random(5);
+		LongIntHashMap map = new LongIntHashMap();
+		Map<Long, Integer> model = new HashMap<>();
+		for (int operation = 0; operation < 200000; operation++) {
+			// 一半是小范围的key，一半是高位不同的key
+			long key = random.nextBoolean() ? random.nextInt(2000) : ((long) random.nextInt(2000) << 40);
+			if (random.nextInt(3) == 0) {
+				map.remove(key);
+				model.remove(key);
+			} else {
+				map.put(key, operation);
+				model.put(key, operation);
+			}
+		}
+		assertEquals(model.size(), map.size());
+		for (Map.Entry<Long, Integer> entry : model.entrySet()) {
+			assertEquals((int) entry.getValue(), map.get(entry.getKey(), -1));
+		}
+		for (int key = 0; key < 2000; key++) {
+			assertEquals(model.containsKey((long) key), map.containsKey(key));
+			assertEquals(model.containsKey((long) key << 40), map.containsKey((long) key << 40));
+		}
+	}
+
+	private static void assertMatches(Map<Long, Integer> model, LongIntHashMap map, int keyRange) {
+		assertEquals(model.size(), map.size());
+		for (long key = 0; key < keyRange; key++) {
+			Integer value = model.get(key);
+			assertEquals("key " + key, value == null ? -1 : value, map.get(key, -1));
+		}
+	}
+}
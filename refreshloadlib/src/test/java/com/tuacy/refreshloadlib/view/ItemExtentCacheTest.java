@@ -0,0 +1,253 @@
+package com.tuacy.refreshloadlib.view;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * ItemExtentCache和逐项累加的结果对照，adapter插入、删除、移动、刷新之后树状数组重建出来的偏移都要对
+ * 需要真的RecyclerView.Adapter派发通知，所以用Robolectric跑
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class ItemExtentCacheTest {
+
+	private static final int DEFAULT_EXTENT = 50;
+
+	@Test
+	public void empty_usesDefaultExtent() {
+		ItemExtentCache cache = new ItemExtentCache(DEFAULT_EXTENT);
+		assertEquals(0, cache.total());
+		assertEquals(RecyclerView.NO_POSITION, cache.positionAt(0));
+		IdAdapter adapter = new IdAdapter(true);
+		adapter.mIds.addAll(ids(0, 4));
+		cache.setAdapter(adapter);
+		assertEquals(4 * DEFAULT_EXTENT, cache.total());
+		assertEquals(2, cache.positionAt(2 * DEFAULT_EXTENT));
+	}
+
+	@Test
+	public void unmeasured_estimatedByAverage() {
+		ItemExtentCache cache = new ItemExtentCache(DEFAULT_EXTENT);
+		IdAdapter adapter = new IdAdapter(true);
+		adapter.mIds.addAll(ids(0, 4));
+		cache.setAdapter(adapter);
+		cache.set(0, 10);
+		cache.set(2, 30);
+		assertEquals(20, cache.estimate());
+		assertEquals(10 + 20 + 30 + 20, cache.total());
+		assertEquals(30, cache.offsetOf(2));
+		assertEquals(1, cache.positionAt(29));
+		assertEquals(2, cache.positionAt(30));
+		assertEquals(3, cache.positionAt(10000));
+	}
+
+	@Test
+	public void reload_restoresExtentsByStableId() {
+		ItemExtentCache cache = new ItemExtentCache(DEFAULT_EXTENT);
+		IdAdapter adapter = new IdAdapter(true);
+		adapter.mIds.addAll(ids(0, 3));
+		cache.setAdapter(adapter);
+		cache.set(0, 10);
+		cache.set(1, 20);
+		cache.set(2, 30);
+		Collections.reverse(adapter.mIds);
+		adapter.notifyDataSetChanged();
+		assertEquals(0, cache.offsetOf(0));
+		assertEquals(30, cache.offsetOf(1));
+		assertEquals(50, cache.offsetOf(2));
+	}
+
+	@Test
+	public void reload_withoutStableIds_forgetsExtents() {
+		ItemExtentCache cache = new ItemExtentCache(DEFAULT_EXTENT);
+		IdAdapter adapter = new IdAdapter(false);
+		adapter.mIds.addAll(ids(0, 3));
+		cache.setAdapter(adapter);
+		cache.set(0, 10);
+		adapter.notifyDataSetChanged();
+		assertEquals(3 * DEFAULT_EXTENT, cache.total());
+	}
+
+	@Test
+	public void random_matchesLinearSums() {
+		Random random = new Random(13);
+		for (int round = 0; round < 100; round++) {
+			boolean stableIds = round % 4 != 0;
+			ItemExtentCache cache = new ItemExtentCache(DEFAULT_EXTENT);
+			IdAdapter adapter = new IdAdapter(stableIds);
+			List<Integer> extents = new ArrayList<>();
+			long nextId = 0;
+			int initial = random.nextInt(40);
+			for (int index = 0; index < initial; index++) {
+				adapter.mIds.add(nextId++);
+				extents.add(-1);
+			}
+			cache.setAdapter(adapter);
+			for (int operation = 0; operation < 300; operation++) {
+				int size = extents.size();
+				switch (random.nextInt(8)) {
+					case 0: {
+						int start = random.nextInt(size + 1);
+						int count = 1 + random.nextInt(5);
+						for (int index = 0; index < count; index++) {
+							adapter.mIds.add(start + index, nextId++);
+							extents.add(start + index, -1);
+						}
+						adapter.notifyItemRangeInserted(start, count);
+						break;
+					}
+					case 1:
+						if (size > 0) {
+							int start = random.nextInt(size);
+							int count = 1 + random.nextInt(Math.min(5, size - start));
+							adapter.mIds.subList(start, start + count).clear();
+							extents.subList(start, start + count).clear();
+							adapter.notifyItemRangeRemoved(start, count);
+						}
+						break;
+					case 2:
+						if (size > 1) {
+							int from = random.nextInt(size);
+							int to = random.nextInt(size);
+							adapter.mIds.add(to, adapter.mIds.remove(from));
+							extents.add(to, extents.remove(from));
+							adapter.notifyItemMoved(from, to);
+						}
+						break;
+					case 3:
+						if (size > 0) {
+							int start = random.nextInt(size);
+							int count = 1 + random.nextInt(Math.min(3, size - start));
+							for (int index = start; index < start + count; index++) {
+								extents.set(index, -1);
+							}
+							adapter.notifyItemRangeChanged(start, count);
+						}
+						break;
+					case 4: {
+						// 打乱顺序，去掉一些再加一些新的，有stable id的时候按id找回高度
+						Map<Long, Integer> byId = new HashMap<>();
+						for (int index = 0; index < size; index++) {
+							byId.put(adapter.mIds.get(index), extents.get(index));
+						}
+						Collections.shuffle(adapter.mIds, random);
+						if (size > 0 && random.nextBoolean()) {
+							adapter.mIds.subList(0, random.nextInt(size)).clear();
+						}
+						for (int index = random.nextInt(5); index > 0; index--) {
+							adapter.mIds.add(random.nextInt(adapter.mIds.size() + 1), nextId++);
+						}
+						extents.clear();
+						for (Long id : adapter.mIds) {
+							Integer extent = byId.get(id);
+							extents.add(stableIds && extent != null ? extent : -1);
+						}
+						adapter.notifyDataSetChanged();
+						break;
+					}
+					default:
+						// 布局之后记录一段连续的可见项
+						if (size > 0) {
+							int start = random.nextInt(size);
+							int end = Math.min(size, start + 1 + random.nextInt(8));
+							for (int index = start; index < end; index++) {
+								int extent = random.nextInt(200);
+								cache.set(index, extent);
+								extents.set(index, extent);
+							}
+						}
+						break;
+				}
+				assertMatches("round " + round + " operation " + operation, extents, cache, random);
+			}
+		}
+	}
+
+	/**
+	 * 每个位置的偏移逐项累加，随机取一些偏移检查对应的位置
+	 */
+	private static void assertMatches(String message, List<Integer> extents, ItemExtentCache cache, Random random) {
+		assertEquals(message, extents.size(), cache.size());
+		long measuredSum = 0;
+		int measuredCount = 0;
+		for (int extent : extents) {
+			if (extent >= 0) {
+				measuredSum += extent;
+				measuredCount++;
+			}
+		}
+		int estimate = measuredCount == 0 ? DEFAULT_EXTENT : (int) (measuredSum / measuredCount);
+		assertEquals(message, estimate, cache.estimate());
+		long[] offsets = new long[extents.size() + 1];
+		for (int position = 0; position < extents.size(); position++) {
+			int extent = extents.get(position);
+			offsets[position + 1] = offsets[position] + (extent >= 0 ? extent : estimate);
+		}
+		for (int position = 0; position <= extents.size(); position++) {
+			assertEquals(message + " position " + position, offsets[position], cache.offsetOf(position));
+		}
+		if (extents.isEmpty()) {
+			return;
+		}
+		for (int sample = 0; sample < 10; sample++) {
+			long offset = (long) (random.nextDouble() * (offsets[extents.size()] + 100));
+			// 偏移不超过offset的最后一项
+			int expected = 0;
+			while (expected + 1 < extents.size() && offsets[expected + 1] <= offset) {
+				expected++;
+			}
+			assertEquals(message + " offset " + offset, expected, cache.positionAt(offset));
+		}
+	}
+
+	private static List<Long> ids(long from, long to) {
+		List<Long> ids = new ArrayList<>();
+		for (long id = from; id < to; id++) {
+			ids.add(id);
+		}
+		return ids;
+	}
+
+	private static class IdAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+		final List<Long> mIds = new ArrayList<>();
+
+		IdAdapter(boolean stableIds) {
+			setHasStableIds(stableIds);
+		}
+
+		@Override
+		public long getItemId(int position) {
+			return mIds.get(position);
+		}
+
+		@Override
+		public int getItemCount() {
+			return mIds.size();
+		}
+
+		@Override
+		public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}